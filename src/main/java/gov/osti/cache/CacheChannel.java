@@ -0,0 +1,33 @@
+package gov.osti.cache;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Carries entity cache invalidations between the nodes of a deployment, so
+ * each node can discard state changed by another.  Changes made on a node
+ * already update that node's own cache; only other nodes need to be told.
+ *
+ * Implementations are named by the "cache.channel" configuration property
+ * and need a public no-argument constructor.
+ */
+public interface CacheChannel {
+    /**
+     * Send invalidations to the other nodes.
+     *
+     * @param invalidations the invalidations to send
+     */
+    void publish(Collection<CacheInvalidation> invalidations);
+
+    /**
+     * Begin delivering invalidations sent by other nodes.
+     *
+     * @param receiver applies each received invalidation locally
+     */
+    void subscribe(Consumer<CacheInvalidation> receiver);
+
+    /**
+     * Stop delivering invalidations and release any resources.
+     */
+    void close();
+}
@@ -0,0 +1,80 @@
+package gov.osti.cache;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import org.eclipse.persistence.config.SessionCustomizer;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.sessions.Session;
+import org.eclipse.persistence.sessions.SessionEvent;
+import org.eclipse.persistence.sessions.SessionEventAdapter;
+import org.eclipse.persistence.sessions.UnitOfWork;
+import org.eclipse.persistence.sessions.changesets.ObjectChangeSet;
+import org.eclipse.persistence.sessions.changesets.UnitOfWorkChangeSet;
+
+/**
+ * Sends invalidations for shared-cache entities changed by each committed
+ * transaction to the other nodes, via EntityCaches.  Configured by the
+ * "eclipselink.session.customizer" persistence unit property.
+ */
+public class CacheCoordinationCustomizer implements SessionCustomizer {
+    // unit of work property holding the invalidations gathered so far
+    private static final String PENDING = CacheCoordinationCustomizer.class.getName();
+    // event property holding the calculated changes
+    private static final String CHANGE_SET = "UnitOfWorkChangeSet";
+
+    @Override
+    public void customize(Session session) throws Exception {
+        session.getEventManager().addListener(new SessionEventAdapter() {
+            @Override
+            public void postCalculateUnitOfWorkChangeSet(SessionEvent event) {
+                // flushes may calculate changes more than once before commit
+                gather(event.getSession(), (UnitOfWorkChangeSet) event.getProperty(CHANGE_SET));
+            }
+
+            @Override
+            public void postCommitUnitOfWork(SessionEvent event) {
+                // deletions are only added to the change set while committing
+                gather(event.getSession(), ((UnitOfWork) event.getSession()).getUnitOfWorkChangeSet());
+
+                Set<CacheInvalidation> pending = pending(event.getSession());
+                event.getSession().removeProperty(PENDING);
+                EntityCaches.publish(pending);
+            }
+        });
+    }
+
+    /**
+     * Get the invalidations gathered so far in a unit of work; these are
+     * discarded along with it if rolled back.
+     */
+    @SuppressWarnings("unchecked")
+    private static Set<CacheInvalidation> pending(Session uow) {
+        Set<CacheInvalidation> pending = (Set<CacheInvalidation>) uow.getProperty(PENDING);
+
+        if (null==pending) {
+            pending = new LinkedHashSet<>();
+            uow.setProperty(PENDING, pending);
+        }
+        return pending;
+    }
+
+    /**
+     * Add invalidations for the shared-cache entities in a change set.
+     */
+    private static void gather(Session uow, UnitOfWorkChangeSet changes) {
+        if (null==changes)
+            return;
+
+        Set<CacheInvalidation> pending = pending(uow);
+        for ( Map<?, ?> changeSets : new Map<?, ?>[] { changes.getAllChangeSets(), changes.getDeletedObjects() } ) {
+            for ( Object key : changeSets.keySet() ) {
+                ObjectChangeSet change = (ObjectChangeSet) key;
+                ClassDescriptor descriptor = uow.getClassDescriptor(change.getClassType(uow));
+
+                if (null!=descriptor && descriptor.isSharedIsolation() && null!=change.getId())
+                    pending.add(CacheInvalidation.of(change.getClassName(), change.getId()));
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package gov.osti.cache;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * A request to discard cached entity state: one entity by ID, every entity of
+ * a class, or everything.  Sent between nodes by a CacheChannel, so the ID
+ * must be Serializable for channels that leave the JVM.
+ */
+public final class CacheInvalidation implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // the entity class name, or null for all entities
+    private final String entityName;
+    // the entity ID, or null for all of the class
+    private final Object id;
+
+    private CacheInvalidation(String entityName, Object id) {
+        this.entityName = entityName;
+        this.id = id;
+    }
+
+    /**
+     * Invalidate all cached entities and query results.
+     *
+     * @return the CacheInvalidation
+     */
+    public static CacheInvalidation all() {
+        return new CacheInvalidation(null, null);
+    }
+
+    /**
+     * Invalidate every cached entity of a class, and its query results.
+     *
+     * @param type the entity class
+     * @return the CacheInvalidation
+     */
+    public static CacheInvalidation of(Class<?> type) {
+        return new CacheInvalidation(type.getName(), null);
+    }
+
+    /**
+     * Invalidate a single cached entity, and query results of its class.
+     *
+     * @param type the entity class name
+     * @param id the entity ID
+     * @return the CacheInvalidation
+     */
+    public static CacheInvalidation of(String type, Object id) {
+        return new CacheInvalidation(type, id);
+    }
+
+    /**
+     * @return the entity class name, or null if all entities
+     */
+    public String getEntityName() {
+        return entityName;
+    }
+
+    /**
+     * @return the entity ID, or null if all of the class
+     */
+    public Object getId() {
+        return id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof CacheInvalidation))
+            return false;
+        CacheInvalidation other = (CacheInvalidation) o;
+        return Objects.equals(entityName, other.entityName) &&
+                Objects.equals(id, other.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(entityName, id);
+    }
+
+    @Override
+    public String toString() {
+        return (null==entityName ? "*" : entityName) + (null==id ? "" : "#" + id);
+    }
+}
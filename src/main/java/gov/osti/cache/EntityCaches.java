@@ -0,0 +1,168 @@
+package gov.osti.cache;
+
+import gov.osti.entity.User;
+import gov.osti.listeners.DoeServletContextListener;
+import gov.osti.security.PrincipalCache;
+import java.util.Collection;
+import java.util.Collections;
+import javax.persistence.EntityManagerFactory;
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.persistence.jpa.JpaHelper;
+import org.eclipse.persistence.sessions.IdentityMapAccessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Eviction of the shared (L2) entity cache and its query results, kept in
+ * step across nodes through the CacheChannel named by "cache.channel"
+ * (default LocalCacheChannel, a single node).
+ *
+ * Evictions requested here apply locally and are sent to the other nodes;
+ * committed changes are sent by CacheCoordinationCustomizer.  Evicting a
+ * User also drops its authenticated principal from the PrincipalCache.
+ */
+public class EntityCaches {
+    // a Logger instance
+    private static final Logger log = LoggerFactory.getLogger(EntityCaches.class);
+
+    // the persistence unit whose cache is managed
+    private static EntityManagerFactory emf = null;
+    // the channel to the other nodes, if started
+    private static CacheChannel channel = null;
+
+    /**
+     * Begin managing the cache of a persistence unit, and receiving
+     * invalidations from other nodes.
+     *
+     * @param factory the EntityManagerFactory of the persistence unit
+     */
+    public static synchronized void start(EntityManagerFactory factory) {
+        emf = factory;
+        channel = createChannel(DoeServletContextListener.getConfigurationProperty("cache.channel"));
+        channel.subscribe(EntityCaches::apply);
+    }
+
+    /**
+     * Stop receiving invalidations.
+     */
+    public static synchronized void stop() {
+        if (null!=channel)
+            channel.close();
+        channel = null;
+        emf = null;
+    }
+
+    /**
+     * Instantiate the configured channel, or the local default.
+     *
+     * @param className the CacheChannel implementation class name, if any
+     * @return the CacheChannel
+     */
+    private static CacheChannel createChannel(String className) {
+        if (StringUtils.isBlank(className))
+            return new LocalCacheChannel();
+
+        try {
+            return (CacheChannel) Class.forName(className.trim()).getDeclaredConstructor().newInstance();
+        } catch ( ReflectiveOperationException | ClassCastException e ) {
+            log.warn("Unable to create cache channel " + className + ", caching locally only: " + e.getMessage());
+            return new LocalCacheChannel();
+        }
+    }
+
+    /**
+     * Evict a single entity, and query results of its class.
+     *
+     * @param type the entity class
+     * @param id the entity ID
+     */
+    public static void evict(Class<?> type, Object id) {
+        invalidate(CacheInvalidation.of(type.getName(), id));
+    }
+
+    /**
+     * Evict every entity of a class, and its query results.
+     *
+     * @param type the entity class
+     */
+    public static void evict(Class<?> type) {
+        invalidate(CacheInvalidation.of(type));
+    }
+
+    /**
+     * Evict all entities and query results.
+     */
+    public static void evictAll() {
+        invalidate(CacheInvalidation.all());
+    }
+
+    /**
+     * Apply an invalidation here and send it to the other nodes.
+     *
+     * @param invalidation the invalidation
+     */
+    private static void invalidate(CacheInvalidation invalidation) {
+        apply(invalidation);
+        publish(Collections.singleton(invalidation));
+    }
+
+    /**
+     * Send invalidations of committed changes to the other nodes, if started.
+     *
+     * @param invalidations the invalidations
+     */
+    static void publish(Collection<CacheInvalidation> invalidations) {
+        CacheChannel current = channel;
+
+        if (null==current || invalidations.isEmpty())
+            return;
+
+        try {
+            current.publish(invalidations);
+        } catch ( RuntimeException e ) {
+            log.warn("Unable to publish cache invalidations: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Apply an invalidation to the local cache.
+     *
+     * @param invalidation the invalidation
+     */
+    private static void apply(CacheInvalidation invalidation) {
+        EntityManagerFactory factory = emf;
+        if (null==factory)
+            throw new IllegalStateException("Context not initialized!");
+
+        IdentityMapAccessor cache = JpaHelper.getServerSession(factory).getIdentityMapAccessor();
+
+        if (null==invalidation.getEntityName()) {
+            cache.invalidateAll();
+            cache.clearQueryCache();
+            PrincipalCache.invalidateAll();
+            return;
+        }
+
+        Class<?> type;
+        try {
+            type = Class.forName(invalidation.getEntityName());
+        } catch ( ClassNotFoundException e ) {
+            log.warn("Cache invalidation for unknown entity: " + invalidation);
+            return;
+        }
+
+        if (null==invalidation.getId())
+            cache.invalidateClass(type);
+        else
+            cache.invalidateObject(invalidation.getId(), type);
+        cache.invalidateQueryCache(type);
+
+        // authenticated principals are cached apart from the entity cache
+        if (User.class.equals(type)) {
+            if (null==invalidation.getId())
+                PrincipalCache.invalidateAll();
+            else
+                PrincipalCache.invalidateUser(invalidation.getId());
+        }
+    }
+}
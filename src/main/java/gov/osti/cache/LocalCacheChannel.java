@@ -0,0 +1,22 @@
+package gov.osti.cache;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * The default CacheChannel, for a single node: there are no other nodes to
+ * tell, so nothing is sent or received.
+ */
+public class LocalCacheChannel implements CacheChannel {
+    @Override
+    public void publish(Collection<CacheInvalidation> invalidations) {
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidation> receiver) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
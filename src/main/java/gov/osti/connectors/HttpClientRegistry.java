@@ -0,0 +1,162 @@
+/*
+ */
+package gov.osti.connectors;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of shared, pooled HttpClient instances; one per downstream service.
+ *
+ * Each downstream gets its own PoolingHttpClientConnectionManager so that a
+ * slow or unavailable service cannot starve connections needed by the others.
+ * Clients handed out here are SHARED; callers must NOT close them, but should
+ * close (or fully consume) each response so the connection returns to the pool.
+ */
+public class HttpClientRegistry {
+    // logger
+    private static final Logger log = LoggerFactory.getLogger(HttpClientRegistry.class);
+
+    /**
+     * Known downstream services, with their pool sizes, timeouts (ms) and
+     * default keep-alive (ms) when the server does not send one.
+     */
+    public enum Downstream {
+        // search and indexing ("search.url", "index.url")
+        SOLR(50, 50, 60000, 60000, 30000),
+        // archiver support process; long-running uploads
+        ARCHIVER(20, 20, 300000, 300000, 30000),
+        // DataCite DOI registration
+        DATACITE(10, 10, 60000, 60000, 30000),
+        // OSTI software publishing
+        OSTI(10, 10, 60000, 60000, 30000),
+        // GitHub and the other public repository connectors
+        GITHUB(20, 10, 60000, 60000, 15000),
+        // GitLab API (public or OSTI hosted)
+        GITLAB(20, 10, 60000, 60000, 15000),
+        // external validation API ("api.host")
+        VALIDATION(20, 20, 60000, 60000, 30000);
+
+        private final int maxTotal;
+        private final int maxPerRoute;
+        private final int connectTimeout;
+        private final int socketTimeout;
+        private final long keepAlive;
+
+        private Downstream(int maxTotal, int maxPerRoute, int connectTimeout, int socketTimeout, long keepAlive) {
+            this.maxTotal = maxTotal;
+            this.maxPerRoute = maxPerRoute;
+            this.connectTimeout = connectTimeout;
+            this.socketTimeout = socketTimeout;
+            this.keepAlive = keepAlive;
+        }
+
+        public int getMaxTotal() {
+            return maxTotal;
+        }
+
+        public int getMaxPerRoute() {
+            return maxPerRoute;
+        }
+
+        public int getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        public int getSocketTimeout() {
+            return socketTimeout;
+        }
+
+        public long getKeepAlive() {
+            return keepAlive;
+        }
+    }
+
+    // the pooled clients, built on first use
+    private final Map<Downstream, CloseableHttpClient> clients = new EnumMap<>(Downstream.class);
+    // set once the registry has been shut down
+    private boolean closed = false;
+
+    /**
+     * Obtain the shared client for a given downstream service, creating its
+     * connection pool on first use.
+     *
+     * @param downstream the downstream service to talk to
+     * @return a shared CloseableHttpClient; do not close it
+     * @throws IllegalStateException if the registry has already been closed
+     */
+    public synchronized CloseableHttpClient get(Downstream downstream) {
+        if (closed)
+            throw new IllegalStateException("HTTP client registry is closed.");
+
+        CloseableHttpClient client = clients.get(downstream);
+
+        if (null==client) {
+            client = create(downstream);
+            clients.put(downstream, client);
+        }
+
+        return client;
+    }
+
+    /**
+     * Construct a new pooled client for the downstream.
+     *
+     * @param downstream the downstream service configuration
+     * @return a new CloseableHttpClient backed by its own connection pool
+     */
+    private static CloseableHttpClient create(Downstream downstream) {
+        PoolingHttpClientConnectionManager cm = new PoolingHttpClientConnectionManager(
+                downstream.getKeepAlive() * 4, TimeUnit.MILLISECONDS);
+        cm.setMaxTotal(downstream.getMaxTotal());
+        cm.setDefaultMaxPerRoute(downstream.getMaxPerRoute());
+        // re-check connections that have been idle a while before leasing them
+        cm.setValidateAfterInactivity(2000);
+
+        final long keepAlive = downstream.getKeepAlive();
+
+        return HttpClientBuilder
+                .create()
+                .setConnectionManager(cm)
+                .setDefaultRequestConfig(RequestConfig
+                        .custom()
+                        .setConnectTimeout(downstream.getConnectTimeout())
+                        .setConnectionRequestTimeout(downstream.getConnectTimeout())
+                        .setSocketTimeout(downstream.getSocketTimeout())
+                        .build())
+                // honor any server Keep-Alive header; otherwise use our default
+                .setKeepAliveStrategy((response, context) -> {
+                    long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return (duration > 0) ? Math.min(duration, keepAlive) : keepAlive;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAlive, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Shut down all connection pools.  After this, no more clients may be
+     * obtained from this registry.
+     */
+    public synchronized void close() {
+        closed = true;
+
+        for ( Map.Entry<Downstream, CloseableHttpClient> entry : clients.entrySet() ) {
+            try {
+                entry.getValue().close();
+            } catch ( IOException e ) {
+                log.warn("Unable to close " + entry.getKey() + " HTTP client: " + e.getMessage());
+            }
+        }
+        clients.clear();
+    }
+}
@@ -11,14 +11,12 @@ import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import gov.osti.entity.DOECodeMetadata;
+import gov.osti.listeners.DoeServletContextListener;
 import java.io.IOException;
 import java.util.TimeZone;
 import javax.servlet.http.HttpServletResponse;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,26 +52,14 @@ public class HttpUtil {
      * @throws IOException on IO errors
      */
     protected static String fetch(HttpGet get) throws IOException {
-        // create an HTTP client to request through
-        CloseableHttpClient hc = 
-                HttpClientBuilder
-                .create()
-                .setDefaultRequestConfig(RequestConfig
-                    .custom()
-                    .setConnectTimeout(60000)
-                    .setConnectionRequestTimeout(60000)
-                    .setSocketTimeout(60000)
-                    .build())
-                .build();
-        
-        try {
+        // use the shared connector pool; closing the response releases the connection
+        try (CloseableHttpResponse response = DoeServletContextListener
+                .getHttpClient(HttpClientRegistry.Downstream.GITHUB)
+                .execute(get)) {
             // only return if response is OK
-            HttpResponse response = hc.execute(get);
             return ( HttpServletResponse.SC_OK==response.getStatusLine().getStatusCode()) ?
                     EntityUtils.toString(response.getEntity()) :
                     "";
-        } finally {
-            hc.close();
         }
     }
 
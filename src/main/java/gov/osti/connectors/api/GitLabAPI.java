@@ -8,6 +8,7 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import gov.osti.connectors.gitlab.Commit;
 import gov.osti.connectors.gitlab.GitLabFile;
 import gov.osti.connectors.gitlab.Namespace;
+import gov.osti.connectors.HttpClientRegistry;
 import gov.osti.entity.DOECodeMetadata;
 import gov.osti.listeners.DoeServletContextListener;
 import java.io.IOException;
@@ -30,13 +31,11 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
-import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.entity.ByteArrayEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -125,28 +124,15 @@ public final class GitLabAPI {
      * @return String contents of the results
      * @throws IOException on IO errors
      */
-    @SuppressWarnings("ConvertToTryWithResources")
     private String fetch(HttpGet get) throws IOException {
-        // create an HTTP client to request through
-        CloseableHttpClient hc
-                = HttpClientBuilder
-                        .create()
-                        .setDefaultRequestConfig(RequestConfig
-                                .custom()
-                                .setConnectTimeout(60000)
-                                .setConnectionRequestTimeout(60000)
-                                .setSocketTimeout(60000)
-                                .build())
-                        .build();
-
-        try {
+        // use the shared GitLab pool; closing the response releases the connection
+        try (CloseableHttpResponse response = DoeServletContextListener
+                .getHttpClient(HttpClientRegistry.Downstream.GITLAB)
+                .execute(get)) {
             // only return if response is OK
-            HttpResponse response = hc.execute(get);
             processResponse(response);
 
             return EntityUtils.toString(response.getEntity());
-        } finally {
-            hc.close();
         }
     }
 
@@ -157,28 +143,15 @@ public final class GitLabAPI {
      * @return String contents of the results
      * @throws IOException on IO errors
      */
-    @SuppressWarnings("ConvertToTryWithResources")
     private String post(HttpPost post) throws IOException {
-        // create an HTTP client to request through
-        CloseableHttpClient hc
-                = HttpClientBuilder
-                        .create()
-                        .setDefaultRequestConfig(RequestConfig
-                                .custom()
-                                .setConnectTimeout(60000)
-                                .setConnectionRequestTimeout(60000)
-                                .setSocketTimeout(60000)
-                                .build())
-                        .build();
-
-        try {
+        // use the shared GitLab pool; closing the response releases the connection
+        try (CloseableHttpResponse response = DoeServletContextListener
+                .getHttpClient(HttpClientRegistry.Downstream.GITLAB)
+                .execute(post)) {
             // only return if response is OK
-            HttpResponse response = hc.execute(post);
             processResponse(response);
 
             return EntityUtils.toString(response.getEntity());
-        } finally {
-            hc.close();
         }
     }
 
@@ -189,28 +162,15 @@ public final class GitLabAPI {
      * @return String contents of the results
      * @throws IOException on IO errors
      */
-    @SuppressWarnings("ConvertToTryWithResources")
     private String put(HttpPut put) throws IOException {
-        // create an HTTP client to request through
-        CloseableHttpClient hc
-                = HttpClientBuilder
-                        .create()
-                        .setDefaultRequestConfig(RequestConfig
-                                .custom()
-                                .setConnectTimeout(60000)
-                                .setConnectionRequestTimeout(60000)
-                                .setSocketTimeout(60000)
-                                .build())
-                        .build();
-
-        try {
+        // use the shared GitLab pool; closing the response releases the connection
+        try (CloseableHttpResponse response = DoeServletContextListener
+                .getHttpClient(HttpClientRegistry.Downstream.GITLAB)
+                .execute(put)) {
             // only return if response is OK
-            HttpResponse response = hc.execute(put);
             processResponse(response);
 
             return EntityUtils.toString(response.getEntity());
-        } finally {
-            hc.close();
         }
     }
 
@@ -6,6 +6,7 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
 
+import gov.osti.connectors.HttpClientRegistry;
 import gov.osti.entity.Award;
 import gov.osti.entity.Contributor;
 import gov.osti.entity.DOECodeMetadata;
@@ -29,13 +30,11 @@ import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 import org.apache.commons.codec.binary.Base64;
-import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
-import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -389,18 +388,8 @@ public class DataCite {
      * @throws IOException on metadata registration errors
      */
     private static void registerMetadata(DOECodeMetadata m) throws IOException {
-        // set some reasonable default timeouts
-        // create an HTTP client to request through
-        CloseableHttpClient hc = 
-                HttpClientBuilder
-                .create()
-                .setDefaultRequestConfig(RequestConfig
-                    .custom()
-                    .setSocketTimeout(60000)
-                    .setConnectTimeout(60000)
-                    .setConnectionRequestTimeout(60000)
-                    .build())
-                .build();
+        // use the shared DataCite connection pool
+        CloseableHttpClient hc = DoeServletContextListener.getHttpClient(HttpClientRegistry.Downstream.DATACITE);
         
         try {
             // create an API authenticated request to send METADATA
@@ -414,20 +403,20 @@ public class DataCite {
             request.setEntity(new StringEntity(writeMetadata(m), "UTF-8"));
             
             // 201 CREATED is the only successful API response
-            HttpResponse response = hc.execute(request);
-            int status_code = response.getStatusLine().getStatusCode();
-            if ( HttpStatus.SC_CREATED!=status_code ) {
-                // otherwise, read the reason why
+            try (CloseableHttpResponse response = hc.execute(request)) {
+                int status_code = response.getStatusLine().getStatusCode();
+                // read the response either way, to release the connection
                 String text_response = EntityUtils.toString(response.getEntity());
-                log.warn("DOI request failed, response code=" + status_code);
+                if ( HttpStatus.SC_CREATED!=status_code ) {
+                    // otherwise, report the reason why
+                    log.warn("DOI request failed, response code=" + status_code);
 
-                throw new IOException ("Metadata failed: " + text_response);
+                    throw new IOException ("Metadata failed: " + text_response);
+                }
             }
         } catch ( XMLStreamException e ) {
             log.warn("XML metadata error: " + e.getMessage());
             throw new IOException ("XML parser error: " + e.getMessage());
-        } finally {
-            hc.close();
         }
     }
     
@@ -438,41 +427,29 @@ public class DataCite {
      * @throws IOException on HTTP transmission errors, or failed to register DOI
      */
     private static void registerDoi(DOECodeMetadata m) throws IOException {
-        // set some reasonable default timeouts
-        // create an HTTP client to request through
-        CloseableHttpClient hc = 
-                HttpClientBuilder
-                .create()
-                .setDefaultRequestConfig(RequestConfig
-                        .custom()
-                        .setSocketTimeout(60000)
-                        .setConnectTimeout(60000)
-                        .setConnectionRequestTimeout(60000)
-                        .build())
-                .build();
+        // use the shared DataCite connection pool
+        CloseableHttpClient hc = DoeServletContextListener.getHttpClient(HttpClientRegistry.Downstream.DATACITE);
         
-        try {
-            // send a DOI registration request
-            HttpPost request = new HttpPost(DATACITE_URL + "/doi");
-            String authentication = DATACITE_LOGIN + ":" + DATACITE_PASSWORD;
-            byte[] encoded = Base64.encodeBase64(authentication.getBytes(Charset.forName("ISO-8859-1")));
-            request.addHeader(HttpHeaders.AUTHORIZATION, "Basic " + new String(encoded));
-            request.setHeader(HttpHeaders.ACCEPT, "text/plain");
-            request.setHeader(HttpHeaders.CONTENT_TYPE, "text/plain; charset=UTF-8");
-            
-            request.setEntity(new StringEntity("doi=" + m.getDoi() + "\nurl=" + DATACITE_BASE_URL + m.getCodeId() + "\n"));
-            
-            HttpResponse response = hc.execute(request);
+        // send a DOI registration request
+        HttpPost request = new HttpPost(DATACITE_URL + "/doi");
+        String authentication = DATACITE_LOGIN + ":" + DATACITE_PASSWORD;
+        byte[] encoded = Base64.encodeBase64(authentication.getBytes(Charset.forName("ISO-8859-1")));
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Basic " + new String(encoded));
+        request.setHeader(HttpHeaders.ACCEPT, "text/plain");
+        request.setHeader(HttpHeaders.CONTENT_TYPE, "text/plain; charset=UTF-8");
+        
+        request.setEntity(new StringEntity("doi=" + m.getDoi() + "\nurl=" + DATACITE_BASE_URL + m.getCodeId() + "\n"));
+        
+        try (CloseableHttpResponse response = hc.execute(request)) {
             int status_code = response.getStatusLine().getStatusCode();
-            
+            // read the response either way, to release the connection
+            String text_response = EntityUtils.toString(response.getEntity());
+
             // success if SC_CREATED (201) returned, otherwise throw error
             if ( HttpStatus.SC_CREATED!=status_code ) {
-                String text_response = EntityUtils.toString(response.getEntity());
                 log.warn("DOI URL request failure, response code=" + status_code);
                 throw new IOException ("DOI registration failed: " + text_response);
             }
-        } finally {
-            hc.close();
         }
     }
     
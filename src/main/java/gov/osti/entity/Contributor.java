@@ -12,6 +12,8 @@ import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.JoinColumn;
 import javax.validation.constraints.Size;
+import org.eclipse.persistence.annotations.BatchFetch;
+import org.eclipse.persistence.annotations.BatchFetchType;
 
 /**
  * The Contributor Embeddable entity class.
@@ -76,6 +78,7 @@ public class Contributor extends Agent {
      * 
      * @return a List of affiliation names, if any
      */
+    @BatchFetch (BatchFetchType.IN)
     @ElementCollection
     @CollectionTable(
             name = "CONTRIBUTOR_AFFILIATIONS",
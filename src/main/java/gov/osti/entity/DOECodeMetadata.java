@@ -27,6 +27,7 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.Table;
 import javax.persistence.SecondaryTable;
@@ -43,8 +44,12 @@ import javax.persistence.ElementCollection;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.Embedded;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.NamedEntityGraphs;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
+import javax.persistence.NamedSubgraph;
 import javax.persistence.OneToMany;
 import javax.persistence.OrderColumn;
 import javax.persistence.PrePersist;
@@ -57,11 +62,17 @@ import javax.persistence.FetchType;
 import javax.validation.Valid;
 import javax.validation.constraints.Size;
 import javax.xml.bind.annotation.XmlRootElement;
+import org.eclipse.persistence.annotations.BatchFetch;
+import org.eclipse.persistence.annotations.BatchFetchType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 @Entity
-@Table(name="metadata")
+@Table(name="metadata", indexes = {
+    @Index(name = "metadata_owner_idx", columnList = "OWNER, CODE_ID"),
+    @Index(name = "metadata_site_idx", columnList = "SITE_OWNERSHIP_CODE, CODE_ID"),
+    @Index(name = "metadata_status_idx", columnList = "WORKFLOW_STATUS, CODE_ID")
+})
 @SecondaryTable(name = "official_use_only", pkJoinColumns = @PrimaryKeyJoinColumn(name = "code_id"))
 @JsonIgnoreProperties (ignoreUnknown = true)
 @NamedQueries ({
@@ -69,6 +80,44 @@ import org.slf4j.LoggerFactory;
     @NamedQuery (name = "DOECodeMetadata.findByStatus", query = "SELECT m FROM DOECodeMetadata m WHERE m.workflowStatus = :status"),
     @NamedQuery (name = "DOECodeMetadata.findByDoiAndRi", query = "SELECT m FROM DOECodeMetadata m JOIN m.relatedIdentifiers r WHERE m.doi = :doi AND r.identifierType = :type AND r.identifierValue = :value AND r.relationType = :relType")
 })
+// what to load up front: the record content, as listed and shown to owners, and the full record including its change log
+@NamedEntityGraphs ({
+    @NamedEntityGraph (name = "DOECodeMetadata.record", attributeNodes = {
+        @NamedAttributeNode ("accessLimitations"),
+        @NamedAttributeNode (value = "developers", subgraph = "developer"),
+        @NamedAttributeNode (value = "contributors", subgraph = "contributor"),
+        @NamedAttributeNode (value = "sponsoringOrganizations", subgraph = "sponsor"),
+        @NamedAttributeNode ("contributingOrganizations"),
+        @NamedAttributeNode ("researchOrganizations"),
+        @NamedAttributeNode ("relatedIdentifiers"),
+        @NamedAttributeNode ("awardDois"),
+        @NamedAttributeNode ("programmingLanguages"),
+        @NamedAttributeNode ("projectKeywords"),
+        @NamedAttributeNode ("licenses")
+    }, subgraphs = {
+        @NamedSubgraph (name = "developer", attributeNodes = @NamedAttributeNode ("affiliations")),
+        @NamedSubgraph (name = "contributor", attributeNodes = @NamedAttributeNode ("affiliations")),
+        @NamedSubgraph (name = "sponsor", attributeNodes = @NamedAttributeNode ("fundingIdentifiers"))
+    }),
+    @NamedEntityGraph (name = "DOECodeMetadata.full", attributeNodes = {
+        @NamedAttributeNode ("accessLimitations"),
+        @NamedAttributeNode (value = "developers", subgraph = "developer"),
+        @NamedAttributeNode (value = "contributors", subgraph = "contributor"),
+        @NamedAttributeNode (value = "sponsoringOrganizations", subgraph = "sponsor"),
+        @NamedAttributeNode ("contributingOrganizations"),
+        @NamedAttributeNode ("researchOrganizations"),
+        @NamedAttributeNode ("relatedIdentifiers"),
+        @NamedAttributeNode ("awardDois"),
+        @NamedAttributeNode ("programmingLanguages"),
+        @NamedAttributeNode ("projectKeywords"),
+        @NamedAttributeNode ("licenses"),
+        @NamedAttributeNode ("changeLog")
+    }, subgraphs = {
+        @NamedSubgraph (name = "developer", attributeNodes = @NamedAttributeNode ("affiliations")),
+        @NamedSubgraph (name = "contributor", attributeNodes = @NamedAttributeNode ("affiliations")),
+        @NamedSubgraph (name = "sponsor", attributeNodes = @NamedAttributeNode ("fundingIdentifiers"))
+    })
+})
 @XmlRootElement (name = "metadata")
 @JsonRootName (value = "metadata")
 public class DOECodeMetadata implements Serializable {
@@ -411,6 +460,7 @@ public class DOECodeMetadata implements Serializable {
      * Obtain the set of Access Limitation values for this record.
      * @return a List of Access Limitation values
      */
+    @BatchFetch (BatchFetchType.IN)
     @ElementCollection
     @CollectionTable(
             name = "ACCESS_LIMITATIONS",
@@ -457,6 +507,7 @@ public class DOECodeMetadata implements Serializable {
      * Get all the Contributors for this Metadata.
      * @return the Contributor List
      */
+    @BatchFetch (BatchFetchType.IN)
     @OneToMany (cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinColumn (name="OWNER_ID", referencedColumnName = "CODE_ID")
     @Valid
@@ -469,6 +520,7 @@ public class DOECodeMetadata implements Serializable {
      * Get all the Sponsoring Organizations for this Metadata
      * @return a List of Sponsoring Organizations
      */
+    @BatchFetch (BatchFetchType.IN)
     @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinColumn (name ="OWNER_ID", referencedColumnName = "CODE_ID")
     @Valid
@@ -480,6 +532,7 @@ public class DOECodeMetadata implements Serializable {
      * Get all the Contributing Organizations
      * @return the List of Contributing Organizations
      */
+    @BatchFetch (BatchFetchType.IN)
     @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinColumn (name = "OWNER_ID", referencedColumnName = "CODE_ID")
     @Valid
@@ -491,6 +544,7 @@ public class DOECodeMetadata implements Serializable {
      * Get all the Research Organizations
      * @return a List of Research Organizations
      */
+    @BatchFetch (BatchFetchType.IN)
     @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinColumn (name="OWNER_ID", referencedColumnName = "CODE_ID")
     @Valid
@@ -529,6 +583,7 @@ public class DOECodeMetadata implements Serializable {
             this.description = description;
     }
 
+    @BatchFetch (BatchFetchType.IN)
     @ElementCollection
     @CollectionTable(
             name = "PROGRAMMING_LANGUAGES",
@@ -566,6 +621,7 @@ public class DOECodeMetadata implements Serializable {
         this.relatedIdentifiers = identifiers;
     }
 
+    @BatchFetch (BatchFetchType.IN)
     @ElementCollection
     @CollectionTable(
             name="RELATED_IDENTIFIERS",
@@ -579,6 +635,7 @@ public class DOECodeMetadata implements Serializable {
         this.awardDois = awardDois;
     }
 
+    @BatchFetch (BatchFetchType.IN)
     @ElementCollection
     @CollectionTable(
             name="AWARD_DOIS",
@@ -592,6 +649,7 @@ public class DOECodeMetadata implements Serializable {
         this.changeLog = changeLog;
     }
 
+    @BatchFetch (BatchFetchType.IN)
     @ElementCollection(fetch = FetchType.LAZY)
     @CollectionTable(
             name="CHANGE_LOG",
@@ -618,6 +676,7 @@ public class DOECodeMetadata implements Serializable {
             this.keywords = keywords;
     }
 
+    @BatchFetch (BatchFetchType.IN)
     @ElementCollection
     @CollectionTable(
             name = "PROJECT_KEYWORDS",
@@ -639,6 +698,7 @@ public class DOECodeMetadata implements Serializable {
     public void setDisclaimers(String disclaimers) {
             this.disclaimers = disclaimers;
     }
+    @BatchFetch (BatchFetchType.IN)
     @ElementCollection
     @CollectionTable(
             name = "LICENSES",
@@ -677,6 +737,7 @@ public class DOECodeMetadata implements Serializable {
      * Get all the Developers for this Metadata
      * @return the List of Developers
      */
+    @BatchFetch (BatchFetchType.IN)
     @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinColumn (name="OWNER_ID", referencedColumnName = "CODE_ID")
     @Valid
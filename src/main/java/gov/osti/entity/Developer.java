@@ -9,6 +9,8 @@ import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
 import javax.persistence.JoinColumn;
 import javax.validation.constraints.Size;
+import org.eclipse.persistence.annotations.BatchFetch;
+import org.eclipse.persistence.annotations.BatchFetchType;
 
 /**
  * The Developer Agent mapping.
@@ -33,6 +35,7 @@ public class Developer extends Agent {
      * 
      * @return a List of developer affiliation names, if any
      */
+    @BatchFetch (BatchFetchType.IN)
     @ElementCollection
     @CollectionTable(
             name = "DEVELOPER_AFFILIATIONS",
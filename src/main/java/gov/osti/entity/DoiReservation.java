@@ -14,6 +14,8 @@ import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Table;
 import org.apache.commons.lang3.StringUtils;
+import org.eclipse.persistence.annotations.Cache;
+import org.eclipse.persistence.config.CacheIsolationType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,6 +29,8 @@ import org.slf4j.LoggerFactory;
  */
 @Table (name = "DOI_RESERVATION")
 @Entity
+// the sequence is only ever read under a write lock; never serve it from a cache
+@Cache (isolation = CacheIsolationType.ISOLATED)
 @JsonIgnoreProperties (ignoreUnknown = true)
 public class DoiReservation implements Serializable {
     // logger
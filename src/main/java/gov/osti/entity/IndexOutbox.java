@@ -0,0 +1,150 @@
+
+package gov.osti.entity;
+
+import java.io.Serializable;
+import java.util.Date;
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.PrePersist;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+/**
+ * A pending update to the search index for a given CODE ID.
+ *
+ * Entries are written in the same transaction as the Snapshot changes that
+ * require them, and removed by the IndexDispatcher once the indexing service
+ * reflects the record's current state: indexed if it has an Approved
+ * Snapshot, removed otherwise.
+ */
+@Entity
+@Table (name = "index_outbox",
+        indexes = {
+            @Index (name = "index_outbox_next_attempt", columnList = "next_attempt")
+        }
+        )
+@NamedQueries ({
+    @NamedQuery (name = "IndexOutbox.findDueCodeIds", query = "SELECT DISTINCT o.codeId FROM IndexOutbox o WHERE o.nextAttempt <= :now"),
+    @NamedQuery (name = "IndexOutbox.findByCodeIds", query = "SELECT o FROM IndexOutbox o WHERE o.codeId IN :ids ORDER BY o.outboxId")
+})
+public class IndexOutbox implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    @Column (name = "outbox_id")
+    private Long outboxId;
+    @Column (name = "code_id", nullable = false)
+    private Long codeId;
+    @Column (name = "attempts", nullable = false)
+    private int attempts = 0;
+    @Column (name = "last_error", length = 1000)
+    private String lastError;
+    // administrative dates
+    @Basic (optional = false)
+    @Column (name = "date_record_added", insertable = true, updatable = false)
+    @Temporal (TemporalType.TIMESTAMP)
+    private Date dateRecordAdded;
+    @Column (name = "next_attempt", nullable = false)
+    @Temporal (TemporalType.TIMESTAMP)
+    private Date nextAttempt;
+
+    public IndexOutbox() {
+    }
+
+    public IndexOutbox(Long codeId) {
+        this.codeId = codeId;
+    }
+
+    public Long getOutboxId() {
+        return outboxId;
+    }
+
+    public void setOutboxId(Long outboxId) {
+        this.outboxId = outboxId;
+    }
+
+    /**
+     * @return the CODE ID to update
+     */
+    public Long getCodeId() {
+        return codeId;
+    }
+
+    /**
+     * @param codeId the CODE ID to update
+     */
+    public void setCodeId(Long codeId) {
+        this.codeId = codeId;
+    }
+
+    /**
+     * @return the number of failed attempts so far
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * @param attempts the number of failed attempts
+     */
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    /**
+     * @return the reason the last attempt failed, if any
+     */
+    public String getLastError() {
+        return lastError;
+    }
+
+    /**
+     * @param lastError the reason the last attempt failed; truncated to fit
+     */
+    public void setLastError(String lastError) {
+        this.lastError = (null!=lastError && lastError.length() > 1000) ? lastError.substring(0, 1000) : lastError;
+    }
+
+    public Date getDateRecordAdded() {
+        return dateRecordAdded;
+    }
+
+    public void setDateRecordAdded(Date dateRecordAdded) {
+        this.dateRecordAdded = dateRecordAdded;
+    }
+
+    /**
+     * @return the earliest time at which this entry should be attempted
+     */
+    public Date getNextAttempt() {
+        return nextAttempt;
+    }
+
+    /**
+     * @param nextAttempt the earliest time at which to attempt this entry
+     */
+    public void setNextAttempt(Date nextAttempt) {
+        this.nextAttempt = nextAttempt;
+    }
+
+    /**
+     * Set the date fields, if not already set, when first stored.
+     */
+    @PrePersist
+    protected void onCreate() {
+        Date now = new Date();
+
+        if (null==dateRecordAdded)
+            dateRecordAdded = now;
+        if (null==nextAttempt)
+            nextAttempt = now;
+    }
+}
@@ -0,0 +1,68 @@
+
+package gov.osti.entity;
+
+import java.io.Serializable;
+import java.util.Date;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+/**
+ * A persisted high-water mark for incremental search index updates.
+ *
+ * Records the latest Approved Snapshot update time known to have been sent to
+ * the index, so that a later incremental reindex need only send Snapshots
+ * updated after it.
+ */
+@Entity
+@Table (name = "index_watermark")
+public class IndexWatermark implements Serializable {
+    // name of the watermark maintained by the reindex service
+    public static final String REINDEX = "reindex";
+
+    @Id
+    @Column (name = "watermark_name", length = 50)
+    private String name;
+    @Column (name = "date_indexed")
+    @Temporal (TemporalType.TIMESTAMP)
+    private Date dateIndexed;
+
+    public IndexWatermark() {
+    }
+
+    public IndexWatermark(String name, Date dateIndexed) {
+        this.name = name;
+        this.dateIndexed = dateIndexed;
+    }
+
+    /**
+     * @return the name of this watermark
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param name the name of this watermark
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return the latest Snapshot update time sent to the index
+     */
+    public Date getDateIndexed() {
+        return dateIndexed;
+    }
+
+    /**
+     * @param dateIndexed the latest Snapshot update time sent to the index
+     */
+    public void setDateIndexed(Date dateIndexed) {
+        this.dateIndexed = dateIndexed;
+    }
+}
@@ -37,7 +37,13 @@ import javax.persistence.UniqueConstraint;
     @NamedQuery (name = "MetadataSnapshot.findAllByStatus", query = "SELECT s FROM MetadataSnapshot s WHERE s.snapshotKey.snapshotStatus=:status ORDER BY s.snapshotKey.codeId"),
     @NamedQuery (name = "MetadataSnapshot.findByCodeIdLastNotStatus", query = "SELECT s FROM MetadataSnapshot s WHERE s.snapshotKey.codeId=:codeId AND s.snapshotKey.snapshotStatus<>:status ORDER BY s.dateRecordUpdated DESC"),
     @NamedQuery (name = "MetadataSnapshot.findByDoiAndStatus", query = "SELECT s FROM MetadataSnapshot s WHERE s.doi=:doi AND s.snapshotKey.snapshotStatus=:status ORDER BY s.snapshotKey.codeId"),
-    @NamedQuery (name = "MetadataSnapshot.findByCodeIdAsSystemStatus", query = "SELECT ss FROM MetadataSnapshot s, MetadataSnapshot ss WHERE s.snapshotKey.codeId=:codeId AND s.snapshotKey.snapshotStatus=:status AND s.snapshotKey.codeId = ss.snapshotKey.codeId AND ss.snapshotKey.snapshotStatus <> :status AND ss.dateRecordAdded <= s.dateRecordUpdated ORDER BY ss.snapshotKey.snapshotStatus")
+    @NamedQuery (name = "MetadataSnapshot.findByCodeIdAsSystemStatus", query = "SELECT ss FROM MetadataSnapshot s, MetadataSnapshot ss WHERE s.snapshotKey.codeId=:codeId AND s.snapshotKey.snapshotStatus=:status AND s.snapshotKey.codeId = ss.snapshotKey.codeId AND ss.snapshotKey.snapshotStatus <> :status AND ss.dateRecordAdded <= s.dateRecordUpdated ORDER BY ss.snapshotKey.snapshotStatus"),
+    @NamedQuery (name = "MetadataSnapshot.findByStatusUpdatedSince", query = "SELECT s FROM MetadataSnapshot s WHERE s.snapshotKey.snapshotStatus=:status AND s.dateRecordUpdated > :date ORDER BY s.snapshotKey.codeId"),
+    @NamedQuery (name = "MetadataSnapshot.findByCodeIdsAndStatus", query = "SELECT s FROM MetadataSnapshot s WHERE s.snapshotKey.codeId IN :ids AND s.snapshotKey.snapshotStatus=:status"),
+    @NamedQuery (name = "MetadataSnapshot.findMintedByDoisAndStatus", query = "SELECT s.doi, s.doiIsMinted FROM MetadataSnapshot s WHERE s.doi IN :dois AND s.snapshotKey.snapshotStatus=:status"),
+    @NamedQuery (name = "MetadataSnapshot.findCodeIdsByStatus", query = "SELECT s.snapshotKey.codeId FROM MetadataSnapshot s WHERE s.snapshotKey.snapshotStatus=:status"),
+    @NamedQuery (name = "MetadataSnapshot.findLastNotStatusByCodeIds", query = "SELECT s.snapshotKey.codeId, s.snapshotKey.snapshotStatus FROM MetadataSnapshot s WHERE s.snapshotKey.codeId IN :ids AND s.snapshotKey.snapshotStatus<>:status ORDER BY s.snapshotKey.codeId, s.dateRecordUpdated DESC"),
+    @NamedQuery (name = "MetadataSnapshot.findSystemStatusByCodeIds", query = "SELECT ss.snapshotKey.codeId, ss.snapshotKey.snapshotStatus FROM MetadataSnapshot s, MetadataSnapshot ss WHERE s.snapshotKey.codeId IN :ids AND s.snapshotKey.snapshotStatus=:status AND s.snapshotKey.codeId = ss.snapshotKey.codeId AND ss.snapshotKey.snapshotStatus <> :status AND ss.dateRecordAdded <= s.dateRecordUpdated ORDER BY ss.snapshotKey.codeId, ss.snapshotKey.snapshotStatus")
 })
 public class MetadataSnapshot implements Serializable {
     @EmbeddedId
@@ -0,0 +1,91 @@
+package gov.osti.entity;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * The columns of a DOECodeMetadata record shown in project listings, read by
+ * projection rather than loading the whole record.  Serializes with the same
+ * property names and date formats as the full record.
+ */
+public class MetadataSummary implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Long codeId;
+    private final String softwareTitle;
+    private final DOECodeMetadata.Status workflowStatus;
+    private final String owner;
+    private final String siteOwnershipCode;
+    private final String doi;
+    @JsonFormat (shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
+    private final Date releaseDate;
+    @JsonFormat (shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
+    private final Date dateRecordAdded;
+    @JsonFormat (shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
+    private final Date dateRecordUpdated;
+
+    /**
+     * Construct from the selected columns, in the order of a JPQL constructor
+     * expression.
+     *
+     * @param codeId the CODE ID
+     * @param softwareTitle the SOFTWARE TITLE
+     * @param workflowStatus the WORKFLOW STATUS
+     * @param owner the OWNER email address
+     * @param siteOwnershipCode the SITE OWNERSHIP CODE
+     * @param doi the DOI, if any
+     * @param releaseDate the RELEASE DATE, if any
+     * @param dateRecordAdded when the record was added
+     * @param dateRecordUpdated when the record was last updated
+     */
+    public MetadataSummary(Long codeId, String softwareTitle, DOECodeMetadata.Status workflowStatus,
+            String owner, String siteOwnershipCode, String doi, Date releaseDate,
+            Date dateRecordAdded, Date dateRecordUpdated) {
+        this.codeId = codeId;
+        this.softwareTitle = softwareTitle;
+        this.workflowStatus = workflowStatus;
+        this.owner = owner;
+        this.siteOwnershipCode = siteOwnershipCode;
+        this.doi = doi;
+        this.releaseDate = releaseDate;
+        this.dateRecordAdded = dateRecordAdded;
+        this.dateRecordUpdated = dateRecordUpdated;
+    }
+
+    public Long getCodeId() {
+        return codeId;
+    }
+
+    public String getSoftwareTitle() {
+        return softwareTitle;
+    }
+
+    public DOECodeMetadata.Status getWorkflowStatus() {
+        return workflowStatus;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public String getSiteOwnershipCode() {
+        return siteOwnershipCode;
+    }
+
+    public String getDoi() {
+        return doi;
+    }
+
+    public Date getReleaseDate() {
+        return releaseDate;
+    }
+
+    public Date getDateRecordAdded() {
+        return dateRecordAdded;
+    }
+
+    public Date getDateRecordUpdated() {
+        return dateRecordUpdated;
+    }
+}
@@ -11,29 +11,51 @@ import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
+import javax.persistence.QueryHint;
 import javax.persistence.Table;
 import javax.validation.constraints.NotNull;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import org.apache.commons.lang3.StringUtils;
+import org.eclipse.persistence.annotations.Cache;
+import org.eclipse.persistence.annotations.CacheType;
+import org.eclipse.persistence.config.CacheIsolationType;
+import org.eclipse.persistence.config.HintValues;
+import org.eclipse.persistence.config.QueryHints;
 
 @Entity
 @Table(name = "sites")
+@Cache(type = CacheType.FULL, expiry = 3600000, isolation = CacheIsolationType.SHARED)
 @NamedQueries({
-    @NamedQuery(name = "Site.findByDomain", query = "SELECT s FROM Site s JOIN s.emailDomains d WHERE d = lower(:domain)")
+    @NamedQuery(name = "Site.findByDomain", query = "SELECT s FROM Site s JOIN s.emailDomains d WHERE d = lower(:domain)", hints = {
+        @QueryHint(name = QueryHints.QUERY_RESULTS_CACHE, value = HintValues.TRUE),
+        @QueryHint(name = QueryHints.QUERY_RESULTS_CACHE_EXPIRY, value = Site.CACHE_EXPIRY),
+        @QueryHint(name = QueryHints.QUERY_RESULTS_CACHE_SIZE, value = "500")})
     ,
-    @NamedQuery(name = "Site.findBySiteCode", query = "SELECT s FROM Site s WHERE s.siteCode = :site")
+    @NamedQuery(name = "Site.findBySiteCode", query = "SELECT s FROM Site s WHERE s.siteCode = :site", hints = {
+        @QueryHint(name = QueryHints.QUERY_RESULTS_CACHE, value = HintValues.TRUE),
+        @QueryHint(name = QueryHints.QUERY_RESULTS_CACHE_EXPIRY, value = Site.CACHE_EXPIRY)})
     ,
-    @NamedQuery(name = "Site.findWithSoftwareGroupEmail", query = "SELECT s FROM Site s WHERE s.softwareGroupEmail IS NOT NULL ORDER BY s")
+    @NamedQuery(name = "Site.findWithSoftwareGroupEmail", query = "SELECT s FROM Site s WHERE s.softwareGroupEmail IS NOT NULL ORDER BY s", hints = {
+        @QueryHint(name = QueryHints.QUERY_RESULTS_CACHE, value = HintValues.TRUE),
+        @QueryHint(name = QueryHints.QUERY_RESULTS_CACHE_EXPIRY, value = Site.CACHE_EXPIRY)})
     ,
-    @NamedQuery(name = "Site.findAll", query = "SELECT s FROM Site s ORDER BY s")
+    @NamedQuery(name = "Site.findAll", query = "SELECT s FROM Site s ORDER BY s", hints = {
+        @QueryHint(name = QueryHints.QUERY_RESULTS_CACHE, value = HintValues.TRUE),
+        @QueryHint(name = QueryHints.QUERY_RESULTS_CACHE_EXPIRY, value = Site.CACHE_EXPIRY)})
     ,
-    @NamedQuery(name = "Site.findStandard", query = "SELECT s FROM Site s WHERE s.standardUsage = true ORDER BY s")
+    @NamedQuery(name = "Site.findStandard", query = "SELECT s FROM Site s WHERE s.standardUsage = true ORDER BY s", hints = {
+        @QueryHint(name = QueryHints.QUERY_RESULTS_CACHE, value = HintValues.TRUE),
+        @QueryHint(name = QueryHints.QUERY_RESULTS_CACHE_EXPIRY, value = Site.CACHE_EXPIRY)})
     ,
-    @NamedQuery(name = "Site.findHQ", query = "SELECT s FROM Site s WHERE s.hqUsage = true ORDER BY s")
+    @NamedQuery(name = "Site.findHQ", query = "SELECT s FROM Site s WHERE s.hqUsage = true ORDER BY s", hints = {
+        @QueryHint(name = QueryHints.QUERY_RESULTS_CACHE, value = HintValues.TRUE),
+        @QueryHint(name = QueryHints.QUERY_RESULTS_CACHE_EXPIRY, value = Site.CACHE_EXPIRY)})
 })
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class Site implements Serializable {
+    // lifetime of cached Site query results, in milliseconds
+    static final String CACHE_EXPIRY = "3600000";
 
     private String siteCode;
     private List<String> emailDomains;
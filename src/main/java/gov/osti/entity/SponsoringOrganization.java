@@ -12,6 +12,8 @@ import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
 import javax.persistence.JoinColumn;
 import org.apache.commons.lang3.StringUtils;
+import org.eclipse.persistence.annotations.BatchFetch;
+import org.eclipse.persistence.annotations.BatchFetchType;
 
 /**
  * A non-Person sponsoring entity.
@@ -44,6 +46,7 @@ public class SponsoringOrganization extends Organization {
         primaryAward = award;
     }
     
+    @BatchFetch (BatchFetchType.IN)
     @ElementCollection
     @CollectionTable(
             name = "FUNDING_IDENTIFIERS",
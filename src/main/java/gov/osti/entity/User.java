@@ -11,8 +11,10 @@ import org.apache.commons.lang3.StringUtils;
 
 import javax.persistence.Basic;
 import javax.persistence.Column;
+import javax.persistence.ColumnResult;
 import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
+import javax.persistence.EntityResult;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
@@ -20,15 +22,22 @@ import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.PrePersist;
 import javax.persistence.PreUpdate;
+import javax.persistence.SqlResultSetMapping;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 import javax.persistence.UniqueConstraint;
+import org.eclipse.persistence.annotations.Cache;
+import org.eclipse.persistence.annotations.CacheType;
+import org.eclipse.persistence.config.CacheIsolationType;
 
 @Entity
 @Table(name="users", uniqueConstraints=@UniqueConstraint(columnNames={"email","apiKey"}))
+@Cache(type=CacheType.SOFT, size=1000, expiry=300000, isolation=CacheIsolationType.SHARED)
+@SqlResultSetMapping (name = "User.listing",
+        entities = @EntityResult (entityClass = User.class),
+        columns = { @ColumnResult (name = "last_key"), @ColumnResult (name = "first_key") })
 @NamedQueries ({
-    @NamedQuery (name = "User.findAllUsers", query = "SELECT u FROM User u ORDER BY lower(u.lastName), lower(u.firstName)"),
     @NamedQuery (name = "User.findUser", query = "SELECT u FROM User u WHERE u.email=lower(:email)")
 })
 public class User implements Serializable {
@@ -2,6 +2,14 @@
  */
 package gov.osti.listeners;
 
+import gov.osti.cache.EntityCaches;
+import gov.osti.connectors.HttpClientRegistry;
+import gov.osti.search.EmbeddedSearchBackend;
+import gov.osti.search.SearchBackend;
+import gov.osti.search.SolrSearchBackend;
+import gov.osti.services.IndexDispatcher;
+import gov.osti.services.SitemapCache;
+import gov.osti.services.SuggestIndex;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
@@ -10,6 +18,8 @@ import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,6 +37,12 @@ public class DoeServletContextListener implements ServletContextListener {
     
     // Map of configured service parameters
     private static Properties configuration;
+
+    // shared pooled HTTP clients for downstream services
+    private static volatile HttpClientRegistry httpClients = null;
+
+    // the search index, remote or in-process
+    private static volatile SearchBackend searchBackend = null;
     
     /**
      * Obtain the named configuration property from the "doecode.properties"
@@ -57,6 +73,50 @@ public class DoeServletContextListener implements ServletContextListener {
                 "" : configuration.getProperty(key) :
                 "";
     }
+
+    /**
+     * Obtain an integer configuration property, using a default if not set or
+     * invalid.
+     *
+     * @param key the KEY name requested
+     * @param defaultValue the value to use if not configured
+     * @return the configured value, or the default
+     */
+    public static int getIntProperty(String key, int defaultValue) {
+        String value = getConfigurationProperty(key);
+
+        if (StringUtils.isBlank(value))
+            return defaultValue;
+
+        try {
+            return Integer.parseInt(value.trim());
+        } catch ( NumberFormatException e ) {
+            log.warn("Invalid value for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Obtain a decimal configuration property, using a default if not set or
+     * invalid.
+     *
+     * @param key the KEY name requested
+     * @param defaultValue the value to use if not configured
+     * @return the configured value, or the default
+     */
+    public static double getDoubleProperty(String key, double defaultValue) {
+        String value = getConfigurationProperty(key);
+
+        if (StringUtils.isBlank(value))
+            return defaultValue;
+
+        try {
+            return Double.parseDouble(value.trim());
+        } catch ( NumberFormatException e ) {
+            log.warn("Invalid value for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
     
     /**
      * Start up the services on deployment.
@@ -68,6 +128,21 @@ public class DoeServletContextListener implements ServletContextListener {
         // attempt to load the persistence layer
         String persistence_unit = sce.getServletContext().getInitParameter("persistence_unit");
         emf = Persistence.createEntityManagerFactory(persistence_unit);
+        // keep entity caches in step with any other nodes
+        EntityCaches.start(emf);
+
+        // set up the shared HTTP connection pools
+        synchronized (DoeServletContextListener.class) {
+            if (null==httpClients)
+                httpClients = new HttpClientRegistry();
+        }
+
+        // send any queued search index updates in the background
+        IndexDispatcher.start();
+        // keep the sitemap current in the background
+        SitemapCache.start();
+        // load typeahead suggestions in the background
+        SuggestIndex.start();
         
         log.info("DOE CODE instance started.");
     }
@@ -80,10 +155,74 @@ public class DoeServletContextListener implements ServletContextListener {
     public void contextDestroyed(ServletContextEvent sce) {
         // close down the Entity Manager
         log.info("Shutting down DOE CODE application.");
+        IndexDispatcher.stop();
+        SitemapCache.stop();
+        SuggestIndex.stop();
+        EntityCaches.stop();
+
         if (null!=emf)
             emf.close();
+
+        // release any pooled HTTP connections
+        synchronized (DoeServletContextListener.class) {
+            if (null!=httpClients)
+                httpClients.close();
+            httpClients = null;
+        }
+    }
+
+    /**
+     * Obtain the shared, pooled HTTP client for a downstream service.  The
+     * client is owned by this listener and must NOT be closed by the caller;
+     * close or consume each response instead to return its connection.
+     *
+     * If the context has not been initialized (e.g., unit tests), a registry
+     * is created on demand.
+     *
+     * @param downstream the downstream service to communicate with
+     * @return the shared CloseableHttpClient for that service
+     */
+    public static CloseableHttpClient getHttpClient(HttpClientRegistry.Downstream downstream) {
+        HttpClientRegistry registry = httpClients;
+
+        // only creation takes the lock
+        if (null==registry) {
+            synchronized (DoeServletContextListener.class) {
+                if (null==httpClients)
+                    httpClients = new HttpClientRegistry();
+                registry = httpClients;
+            }
+        }
+
+        return registry.get(downstream);
     }
     
+    /**
+     * Obtain the configured search backend: in-process if "search.backend"
+     * is "embedded", otherwise the remote SOLR at "search.url", indexed
+     * through "index.url" and "index.removal.url".
+     *
+     * @return the shared SearchBackend
+     */
+    public static SearchBackend getSearchBackend() {
+        SearchBackend backend = searchBackend;
+
+        // only creation takes the lock
+        if (null==backend) {
+            synchronized (DoeServletContextListener.class) {
+                if (null==searchBackend)
+                    searchBackend = "embedded".equalsIgnoreCase(getConfigurationProperty("search.backend").trim()) ?
+                            new EmbeddedSearchBackend() :
+                            new SolrSearchBackend(getConfigurationProperty("search.url"),
+                                    getConfigurationProperty("index.url"),
+                                    getConfigurationProperty("index.removal.url"));
+                backend = searchBackend;
+            }
+        }
+
+        return backend;
+    }
+
     /**
      * Acquire an EntityManager for persistence operations.  Handling the resulting
      * EntityManager is the responsibility of the caller.  Make sure it is closed
@@ -99,12 +238,12 @@ public class DoeServletContextListener implements ServletContextListener {
     }
 
     /**
-     * Refresh the caches.
+     * Refresh the caches, on this and any other nodes.
      */
     public static void refreshCaches() {
         if (null == emf)
             throw new IllegalStateException("Context not initialized!");
 
-        emf.getCache().evictAll();
+        EntityCaches.evictAll();
     }
 }
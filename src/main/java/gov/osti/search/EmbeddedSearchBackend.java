@@ -0,0 +1,456 @@
+package gov.osti.search;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpStatus;
+import org.apache.http.NameValuePair;
+
+/**
+ * In-process SearchBackend, for small deployments and test environments
+ * without a SOLR service.
+ *
+ * Holds the indexing documents in memory (see LocalDocument), and answers
+ * searches by evaluating the query (see LocalQuery) against each, writing a
+ * SOLR JSON response as the /query handler would: Approved records only,
+ * with paging by start row or cursor, sorting, the requested fields, and
+ * JSON Facet API terms and date range facets.
+ *
+ * Nothing is persisted; the index must be repopulated on startup.
+ */
+public class EmbeddedSearchBackend implements SearchBackend {
+    private static final ObjectMapper mapper = new ObjectMapper();
+    // facet requests use SOLR's relaxed JSON
+    private static final ObjectMapper FACET_MAPPER = new ObjectMapper()
+            .enable(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES)
+            .enable(JsonParser.Feature.ALLOW_SINGLE_QUOTES);
+
+    // as appended by the SOLR /query handler
+    private static final String APPROVED_FILTER = "workflowStatus:Approved";
+    private static final int DEFAULT_ROWS = 10;
+    private static final Pattern GAP = Pattern.compile("\\+(\\d+)(YEAR|MONTH|DAY)S?");
+
+    // documents by CODE ID
+    private final TreeMap<Long, LocalDocument> documents = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * An in-memory search response.
+     */
+    private static class LocalResult implements Result {
+        private final int status;
+        private final byte[] content;
+
+        LocalResult(int status, byte[] content) {
+            this.status = status;
+            this.content = content;
+        }
+
+        @Override
+        public int getStatus() {
+            return status;
+        }
+
+        @Override
+        public InputStream getContent() {
+            return new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * A matched document and its score.
+     */
+    private static class Hit {
+        private final LocalDocument doc;
+        private final float score;
+
+        Hit(LocalDocument doc, float score) {
+            this.doc = doc;
+            this.score = score;
+        }
+    }
+
+    @Override
+    public boolean isSearchable() {
+        return true;
+    }
+
+    @Override
+    public boolean isIndexable() {
+        return true;
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return false;
+    }
+
+    @Override
+    public boolean index(JsonNode documents) {
+        List<LocalDocument> parsed = new ArrayList<>();
+        for ( JsonNode document : documents.isArray() ? documents : mapper.createArrayNode().add(documents) )
+            parsed.add(new LocalDocument(document));
+
+        lock.writeLock().lock();
+        try {
+            for ( LocalDocument doc : parsed )
+                this.documents.put(doc.getCodeId(), doc);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean remove(Collection<Long> codeIds) {
+        lock.writeLock().lock();
+        try {
+            documents.keySet().removeAll(codeIds);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of documents indexed.
+     *
+     * @return the document count
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Result search(List<NameValuePair> parameters) throws IOException {
+        Map<String, List<String>> params = new HashMap<>();
+        for ( NameValuePair parameter : parameters )
+            params.computeIfAbsent(parameter.getName(), n -> new ArrayList<>()).add(parameter.getValue());
+
+        try {
+            List<LocalQuery> queries = new ArrayList<>();
+            queries.add(LocalQuery.parse(StringUtils.defaultIfBlank(last(params, "q"), "*:*")));
+            for ( String fq : params.getOrDefault("fq", new ArrayList<>()) )
+                queries.add(LocalQuery.parse(fq));
+            queries.add(LocalQuery.parse(APPROVED_FILTER));
+            LocalQuery query = LocalQuery.all(queries);
+
+            Comparator<Hit> sort = parseSort(last(params, "sort"));
+            int rows = parseInt(last(params, "rows"), DEFAULT_ROWS);
+            String cursor = last(params, "cursorMark");
+            int start = (null!=cursor) ? parseCursor(cursor) : parseInt(last(params, "start"), 0);
+            String facets = last(params, "json.facet");
+
+            lock.readLock().lock();
+            try {
+                List<Hit> hits = new ArrayList<>();
+                for ( LocalDocument doc : documents.values() ) {
+                    float score = query.score(doc);
+                    if (score >= 0)
+                        hits.add(new Hit(doc, score));
+                }
+                hits.sort(sort);
+
+                return new LocalResult(HttpStatus.SC_OK, writeResponse(hits, start, rows, cursor, parseFields(params.get("fl")),
+                        StringUtils.isBlank(facets) ? null : FACET_MAPPER.readTree(facets),
+                        "true".equals(last(params, "omitHeader"))));
+            } finally {
+                lock.readLock().unlock();
+            }
+        } catch ( IllegalArgumentException | JsonProcessingException e ) {
+            return error(e.getMessage());
+        }
+    }
+
+    /**
+     * Write a SOLR JSON response.
+     *
+     * @param hits all the matched documents, sorted
+     * @param start the first row to return
+     * @param rows the number of rows to return
+     * @param cursor the cursor mark, if paging by cursor
+     * @param fields the fields to return for each document
+     * @param facets the JSON facet request, if any
+     * @param omitHeader whether to leave out the response header
+     * @return the response content
+     */
+    private static byte[] writeResponse(List<Hit> hits, int start, int rows, String cursor,
+            Set<String> fields, JsonNode facets, boolean omitHeader) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int end = Math.min(hits.size(), start + rows);
+
+        try (JsonGenerator json = mapper.getFactory().createGenerator(out)) {
+            json.writeStartObject();
+            if (!omitHeader) {
+                json.writeObjectFieldStart("responseHeader");
+                json.writeNumberField("status", 0);
+                json.writeEndObject();
+            }
+
+            json.writeObjectFieldStart("response");
+            json.writeNumberField("numFound", hits.size());
+            json.writeNumberField("start", start);
+            json.writeArrayFieldStart("docs");
+            for ( int i = start; i < end; ++i )
+                writeDocument(json, hits.get(i), fields);
+            json.writeEndArray();
+            json.writeEndObject();
+
+            if (null!=facets) {
+                json.writeObjectFieldStart("facets");
+                json.writeNumberField("count", hits.size());
+                for ( Iterator<Map.Entry<String, JsonNode>> facet = facets.fields(); facet.hasNext(); ) {
+                    Map.Entry<String, JsonNode> definition = facet.next();
+                    writeFacet(json, definition.getKey(), definition.getValue(), hits);
+                }
+                json.writeEndObject();
+            }
+
+            // the cursor stays put at the end of the results
+            if (null!=cursor)
+                json.writeStringField("nextCursorMark", (end < hits.size()) ? String.valueOf(end) : cursor);
+            json.writeEndObject();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Write the requested fields of a document.
+     */
+    private static void writeDocument(JsonGenerator json, Hit hit, Set<String> fields) throws IOException {
+        json.writeStartObject();
+        for ( String field : fields ) {
+            if ("json".equals(field)) {
+                if (null!=hit.doc.getJson())
+                    json.writeStringField("json", hit.doc.getJson());
+            } else if ("codeId".equals(field)) {
+                json.writeNumberField("codeId", hit.doc.getCodeId());
+            } else if ("score".equals(field)) {
+                json.writeNumberField("score", hit.score);
+            } else {
+                List<String> values = hit.doc.getValues(field);
+
+                if (1==values.size()) {
+                    json.writeStringField(field, values.get(0));
+                } else if (!values.isEmpty()) {
+                    json.writeArrayFieldStart(field);
+                    for ( String value : values )
+                        json.writeString(value);
+                    json.writeEndArray();
+                }
+            }
+        }
+        json.writeEndObject();
+    }
+
+    /**
+     * Write a terms or range facet over the matched documents.
+     */
+    private static void writeFacet(JsonGenerator json, String name, JsonNode definition, List<Hit> hits) throws IOException {
+        String type = definition.path("type").asText();
+        String field = definition.path("field").asText();
+
+        if ("terms".equals(type)) {
+            int limit = definition.path("limit").asInt(10);
+            int mincount = definition.path("mincount").asInt(1);
+
+            // count each document once per value
+            Map<String, Integer> counts = new HashMap<>();
+            for ( Hit hit : hits )
+                for ( String value : new HashSet<>(hit.doc.getValues(field)) )
+                    counts.merge(value, 1, Integer::sum);
+
+            List<Map.Entry<String, Integer>> buckets = new ArrayList<>(counts.entrySet());
+            buckets.sort(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+
+            json.writeObjectFieldStart(name);
+            json.writeArrayFieldStart("buckets");
+            int written = 0;
+            for ( Map.Entry<String, Integer> bucket : buckets ) {
+                if (bucket.getValue() < mincount || (limit >= 0 && written >= limit))
+                    break;
+                json.writeStartObject();
+                json.writeStringField("val", bucket.getKey());
+                json.writeNumberField("count", bucket.getValue());
+                json.writeEndObject();
+                ++written;
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        } else if ("range".equals(type) && LocalDocument.DATE_FIELD.equals(field)) {
+            int mincount = definition.path("mincount").asInt(0);
+            ZonedDateTime start = parseFacetDate(definition.path("start").asText());
+            ZonedDateTime end = parseFacetDate(definition.path("end").asText());
+            Matcher gap = GAP.matcher(definition.path("gap").asText());
+            if (!gap.matches())
+                throw new IllegalArgumentException("Unsupported facet gap: " + definition.path("gap").asText());
+            int amount = Math.max(1, Integer.parseInt(gap.group(1)));
+            ChronoUnit unit = ChronoUnit.valueOf(gap.group(2) + "S");
+
+            // count per bucket, by bucket start
+            TreeMap<Instant, Integer> counts = new TreeMap<>();
+            for ( ZonedDateTime bucket = start; bucket.isBefore(end); bucket = bucket.plus(amount, unit) )
+                counts.put(bucket.toInstant(), 0);
+            for ( Hit hit : hits ) {
+                Instant date = hit.doc.getReleaseDate();
+                Instant bucket = (null==date || !date.isBefore(end.toInstant())) ? null : counts.floorKey(date);
+                if (null!=bucket)
+                    counts.merge(bucket, 1, Integer::sum);
+            }
+
+            json.writeObjectFieldStart(name);
+            json.writeArrayFieldStart("buckets");
+            for ( Map.Entry<Instant, Integer> bucket : counts.entrySet() ) {
+                if (bucket.getValue() < mincount)
+                    continue;
+                json.writeStartObject();
+                json.writeStringField("val", DateTimeFormatter.ISO_INSTANT.format(bucket.getKey()));
+                json.writeNumberField("count", bucket.getValue());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        } else {
+            throw new IllegalArgumentException("Unsupported facet: " + name);
+        }
+    }
+
+    /**
+     * Parse a facet range end: NOW, or an ISO date or instant.
+     */
+    private static ZonedDateTime parseFacetDate(String value) {
+        if ("NOW".equals(value))
+            return ZonedDateTime.now(ZoneOffset.UTC);
+
+        Instant date = LocalDocument.parseDate(value);
+        if (null==date)
+            throw new IllegalArgumentException("Invalid facet date: " + value);
+        return date.atZone(ZoneOffset.UTC);
+    }
+
+    /**
+     * Parse a SOLR sort, e.g., "score desc,codeId asc".  Documents missing a
+     * value sort last.
+     */
+    private static Comparator<Hit> parseSort(String sort) {
+        Comparator<Hit> comparator = null;
+
+        for ( String clause : StringUtils.split(StringUtils.defaultIfBlank(sort, "score desc"), ",") ) {
+            String[] parts = StringUtils.split(clause.trim(), " ");
+            if (2!=parts.length)
+                throw new IllegalArgumentException("Invalid sort: " + sort);
+            boolean descending = "desc".equalsIgnoreCase(parts[1]);
+            String field = parts[0];
+
+            Comparator<Hit> next;
+            if ("score".equals(field)) {
+                next = Comparator.comparingDouble(hit -> hit.score);
+                if (descending)
+                    next = next.reversed();
+            } else if ("codeId".equals(field)) {
+                next = Comparator.comparingLong(hit -> hit.doc.getCodeId());
+                if (descending)
+                    next = next.reversed();
+            } else if (LocalDocument.DATE_FIELD.equals(field)) {
+                Comparator<Instant> order = descending ? Comparator.reverseOrder() : Comparator.naturalOrder();
+                next = Comparator.comparing(hit -> hit.doc.getReleaseDate(), Comparator.nullsLast(order));
+            } else {
+                Comparator<String> order = descending ? Comparator.reverseOrder() : Comparator.naturalOrder();
+                next = Comparator.comparing(hit -> StringUtils.lowerCase(hit.doc.getFirst(field), Locale.ROOT), Comparator.nullsLast(order));
+            }
+            comparator = (null==comparator) ? next : comparator.thenComparing(next);
+        }
+        // a stable final order
+        return comparator.thenComparingLong(hit -> hit.doc.getCodeId());
+    }
+
+    /**
+     * Parse the requested fields; CODE ID and stored JSON if none.
+     */
+    private static Set<String> parseFields(List<String> fl) {
+        Set<String> fields = new LinkedHashSet<>();
+
+        if (null!=fl)
+            for ( String value : fl )
+                for ( String field : StringUtils.split(value, ", ") )
+                    fields.add(field);
+        if (fields.isEmpty()) {
+            fields.add("codeId");
+            fields.add("json");
+        }
+        return fields;
+    }
+
+    /**
+     * Parse a cursor mark: "*" to start, or the row to continue from.
+     */
+    private static int parseCursor(String cursor) {
+        return "*".equals(cursor) ? 0 : parseInt(cursor, 0);
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        if (StringUtils.isBlank(value))
+            return defaultValue;
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            if (parsed < 0)
+                throw new IllegalArgumentException("Invalid value: " + value);
+            return parsed;
+        } catch ( NumberFormatException e ) {
+            throw new IllegalArgumentException("Invalid value: " + value);
+        }
+    }
+
+    private static String last(Map<String, List<String>> params, String name) {
+        List<String> values = params.get(name);
+        return (null==values || values.isEmpty()) ? null : values.get(values.size() - 1);
+    }
+
+    /**
+     * Construct a SOLR-style error response.
+     */
+    private static Result error(String message) throws IOException {
+        JsonNode error = mapper.createObjectNode().set("error", mapper.createObjectNode()
+                .put("msg", message)
+                .put("code", HttpStatus.SC_BAD_REQUEST));
+        return new LocalResult(HttpStatus.SC_BAD_REQUEST, mapper.writeValueAsString(error).getBytes(StandardCharsets.UTF_8));
+    }
+}
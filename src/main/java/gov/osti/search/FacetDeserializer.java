@@ -8,10 +8,14 @@ import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.stream.Stream;
 
 /**
- * Custom deserialization of SOLR "dates" facets.
+ * Custom deserialization of SOLR JSON facets: the "dates" range facet, and
+ * any other bucketed facets by name.
  * 
  * @author ensornl
  */
@@ -39,6 +43,20 @@ public class FacetDeserializer extends StdDeserializer<SolrFacet> {
             }
         }
 
+        // any other bucketed facets, e.g., terms
+        for ( Iterator<Map.Entry<String, JsonNode>> fields = node.fields(); fields.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode fieldBuckets = field.getValue().get("buckets");
+
+            if ("dates".equals(field.getKey()) || null==fieldBuckets || !fieldBuckets.isArray())
+                continue;
+
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            for ( JsonNode bucket : fieldBuckets )
+                counts.put(bucket.get("val").asText(), bucket.get("count").asInt());
+            facet.addField(field.getKey(), counts);
+        }
+
         return facet;
     }
 }
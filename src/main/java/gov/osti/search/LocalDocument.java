@@ -0,0 +1,212 @@
+package gov.osti.search;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.text.Normalizer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * A search document as held by the EmbeddedSearchBackend: the fields of an
+ * indexing document, flattened to dotted paths as SOLR receives them, plus
+ * the copy fields of schema.xml.  Text fields are kept analyzed into lower
+ * case, accent-free word tokens; other fields are matched exactly.
+ */
+class LocalDocument {
+    // the catch-all search field
+    static final String TEXT_FIELD = "_text_";
+    // the date field, for ranges and date facets
+    static final String DATE_FIELD = "releaseDate";
+
+    // fields matched exactly rather than as text, per schema.xml
+    private static final Set<String> EXACT_FIELDS = new HashSet<>(Arrays.asList(
+            "codeId", "openSource", "accessLimitations", "projectType", "acronym",
+            "contributingOrganizations.contributorType", "contributors.contributorType",
+            "doiStatus", "licenses", "otherSpecialRequirements", "owner",
+            "recipientEmail", "recipientName", "recipientOrg", "recipientPhone",
+            "relatedIdentifiers.description", "relatedIdentifiers.identifierType",
+            "relatedIdentifiers.identifierValue", "relatedIdentifiers.relationType",
+            "dateRecordUpdated", "fResearchOrganizations", "fSponsoringOrganizations",
+            "fProgrammingLanguages", "siteAccessionNumber", "siteOwnershipCode",
+            "workflowStatus", "softwareType"));
+
+    // copy fields of schema.xml, source to destinations
+    private static final Map<String, List<String>> COPY_FIELDS = new HashMap<>();
+    static {
+        for ( String source : Arrays.asList("doi", "sponsoringOrganizations.fundingIdentifiers.identifierValue",
+                "sponsoringOrganizations.primaryAward", "relatedIdentifiers.identifierValue",
+                "siteAccessionNumber", "awardDois.awardDoi", "codeId") )
+            COPY_FIELDS.put(source, Arrays.asList("_id_numbers"));
+        COPY_FIELDS.put("developers.orcid", Arrays.asList("_id_numbers", "_orcids"));
+        COPY_FIELDS.put("contributors.orcid", Arrays.asList("_id_numbers", "_orcids"));
+        COPY_FIELDS.put("developers.name", Arrays.asList("_names"));
+        COPY_FIELDS.put("contributors.name", Arrays.asList("_names"));
+        COPY_FIELDS.put("researchOrganizations.organizationName", Arrays.asList("fResearchOrganizations"));
+        COPY_FIELDS.put("sponsoringOrganizations.organizationName", Arrays.asList("fSponsoringOrganizations"));
+        COPY_FIELDS.put("programmingLanguages", Arrays.asList("fProgrammingLanguages"));
+    }
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final long codeId;
+    private final String json;
+    private final Instant releaseDate;
+    // field values, and analyzed tokens of each text field value
+    private final Map<String, List<String>> values = new HashMap<>();
+    private final Map<String, List<String[]>> tokens = new HashMap<>();
+
+    /**
+     * Construct from an indexing document.
+     *
+     * @param document the JSON document as sent to the index
+     */
+    LocalDocument(JsonNode document) {
+        codeId = document.path("codeId").asLong();
+        json = document.path("json").asText(null);
+
+        for ( Iterator<Map.Entry<String, JsonNode>> fields = document.fields(); fields.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = fields.next();
+
+            // the stored JSON is for display only
+            if (!"json".equals(field.getKey()))
+                flatten(field.getKey(), field.getValue());
+        }
+
+        // copy fields; the catch-all gets everything
+        List<String> all = new ArrayList<>();
+        for ( Map.Entry<String, List<String>> field : new ArrayList<>(values.entrySet()) ) {
+            all.addAll(field.getValue());
+            for ( String destination : COPY_FIELDS.getOrDefault(field.getKey(), Collections.emptyList()) )
+                values.computeIfAbsent(destination, f -> new ArrayList<>()).addAll(field.getValue());
+        }
+        values.put(TEXT_FIELD, all);
+
+        for ( Map.Entry<String, List<String>> field : values.entrySet() ) {
+            if (isExact(field.getKey()))
+                continue;
+
+            List<String[]> analyzed = new ArrayList<>();
+            for ( String value : field.getValue() )
+                analyzed.add(analyze(value));
+            tokens.put(field.getKey(), analyzed);
+        }
+
+        releaseDate = parseDate(getFirst(DATE_FIELD));
+    }
+
+    /**
+     * Add the values of a JSON node under a dotted field name.
+     */
+    private void flatten(String name, JsonNode node) {
+        if (node.isObject()) {
+            for ( Iterator<Map.Entry<String, JsonNode>> fields = node.fields(); fields.hasNext(); ) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                flatten(name + "." + field.getKey(), field.getValue());
+            }
+        } else if (node.isArray()) {
+            for ( JsonNode item : node )
+                flatten(name, item);
+        } else if (!node.isNull()) {
+            values.computeIfAbsent(name, f -> new ArrayList<>()).add(node.asText());
+        }
+    }
+
+    /**
+     * Whether or not a field is matched exactly, rather than as text.
+     *
+     * @param field the field name
+     * @return true if exact
+     */
+    static boolean isExact(String field) {
+        return EXACT_FIELDS.contains(field);
+    }
+
+    /**
+     * Analyze text into word tokens: lower case, accents removed, split on
+     * anything not a letter or digit.
+     *
+     * @param text the text
+     * @return the tokens, possibly none
+     */
+    static String[] analyze(String text) {
+        String plain = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        String[] words = NON_WORD.split(plain.toLowerCase(Locale.ROOT));
+
+        return (words.length > 0 && words[0].isEmpty()) ? Arrays.copyOfRange(words, 1, words.length) : words;
+    }
+
+    /**
+     * Parse a date value: an ISO instant, or a date alone taken as UTC midnight.
+     *
+     * @param value the date text
+     * @return the Instant, or null if missing or invalid
+     */
+    static Instant parseDate(String value) {
+        if (null==value)
+            return null;
+
+        try {
+            return (value.length() > 10) ?
+                    Instant.parse(value) :
+                    LocalDate.parse(value).atStartOfDay(ZoneOffset.UTC).toInstant();
+        } catch ( DateTimeParseException e ) {
+            return null;
+        }
+    }
+
+    long getCodeId() {
+        return codeId;
+    }
+
+    String getJson() {
+        return json;
+    }
+
+    Instant getReleaseDate() {
+        return releaseDate;
+    }
+
+    /**
+     * Get the values of a field.
+     *
+     * @param field the field name
+     * @return the values, possibly none
+     */
+    List<String> getValues(String field) {
+        return values.getOrDefault(field, Collections.emptyList());
+    }
+
+    /**
+     * Get the first value of a field.
+     *
+     * @param field the field name
+     * @return the value, or null if none
+     */
+    String getFirst(String field) {
+        List<String> found = getValues(field);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    /**
+     * Get the analyzed tokens of each value of a text field.
+     *
+     * @param field the field name
+     * @return the tokens of each value, possibly none
+     */
+    List<String[]> getTokens(String field) {
+        return tokens.getOrDefault(field, Collections.emptyList());
+    }
+}
@@ -0,0 +1,484 @@
+package gov.osti.search;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * A SOLR query, parsed for evaluation against LocalDocuments.
+ *
+ * Understands the standard query syntax that SearchData.toQ() and the other
+ * searches here produce: field:term, field:"phrase", field:(grouped terms),
+ * field:[from TO to] ranges, * and ? wildcards, AND/OR/NOT and +/- operators,
+ * parentheses, backslash escapes, and *:* for everything.  As with q.op=AND,
+ * clauses are required unless joined with OR.
+ *
+ * Scores simply count the matching terms; there is no stemming or relevance
+ * weighting as with SOLR.
+ */
+abstract class LocalQuery {
+    // the result of a document not matching
+    static final float NO_MATCH = -1f;
+
+    // field matched when none is given
+    private static final String DEFAULT_FIELD = LocalDocument.TEXT_FIELD;
+
+    /**
+     * Evaluate against a document.
+     *
+     * @param doc the document
+     * @return the score if matched (at least 0), or NO_MATCH
+     */
+    abstract float score(LocalDocument doc);
+
+    /**
+     * Parse a query.
+     *
+     * @param q the query text
+     * @return the LocalQuery
+     * @throws IllegalArgumentException if the query cannot be parsed
+     */
+    static LocalQuery parse(String q) {
+        Parser parser = new Parser(q);
+        LocalQuery query = parser.parseClauses(DEFAULT_FIELD);
+
+        if (parser.pos < q.length())
+            throw new IllegalArgumentException("Unexpected '" + q.charAt(parser.pos) + "' at position " + parser.pos);
+        return query;
+    }
+
+    /**
+     * Combine queries as all required.
+     *
+     * @param queries the queries
+     * @return the combined LocalQuery
+     */
+    static LocalQuery all(List<LocalQuery> queries) {
+        Bool bool = new Bool();
+        for ( LocalQuery query : queries )
+            bool.add(Occur.MUST, query);
+        return bool;
+    }
+
+    /**
+     * Matches everything.
+     */
+    private static class Everything extends LocalQuery {
+        @Override
+        float score(LocalDocument doc) {
+            return 1f;
+        }
+    }
+
+    /**
+     * A single term, possibly with wildcards.  Text fields match any value
+     * containing the term's tokens in sequence; others match whole values.
+     */
+    private static class Term extends LocalQuery {
+        private final String field;
+        private final String text;
+        private final Pattern wildcard;
+
+        Term(String field, String text, Pattern wildcard) {
+            this.field = field;
+            this.text = text;
+            this.wildcard = wildcard;
+        }
+
+        @Override
+        float score(LocalDocument doc) {
+            int matches = 0;
+
+            if (LocalDocument.isExact(field)) {
+                for ( String value : doc.getValues(field) )
+                    if ((null==wildcard) ? text.equals(value) : wildcard.matcher(value).matches())
+                        ++matches;
+            } else if (null!=wildcard) {
+                // wildcards apply to single tokens
+                for ( String[] tokens : doc.getTokens(field) )
+                    for ( String token : tokens )
+                        if (wildcard.matcher(token).matches())
+                            ++matches;
+            } else {
+                String[] terms = LocalDocument.analyze(text);
+                // nothing searchable, e.g., punctuation alone
+                if (0==terms.length)
+                    return 0f;
+
+                for ( String[] tokens : doc.getTokens(field) )
+                    matches += countSequence(tokens, terms);
+            }
+
+            return (0==matches) ? NO_MATCH : matches;
+        }
+    }
+
+    /**
+     * Count the occurrences of a sequence of terms within tokens.
+     */
+    private static int countSequence(String[] tokens, String[] terms) {
+        int count = 0;
+
+        for ( int i = 0; i + terms.length <= tokens.length; ++i ) {
+            int j = 0;
+            while (j < terms.length && terms[j].equals(tokens[i + j]))
+                ++j;
+            if (j==terms.length)
+                ++count;
+        }
+        return count;
+    }
+
+    /**
+     * A quoted phrase: the same as an unwildcarded term.
+     */
+    private static class Phrase extends Term {
+        Phrase(String field, String text) {
+            super(field, text, null);
+        }
+    }
+
+    /**
+     * A field having any value at all.
+     */
+    private static class Exists extends LocalQuery {
+        private final String field;
+
+        Exists(String field) {
+            this.field = field;
+        }
+
+        @Override
+        float score(LocalDocument doc) {
+            return doc.getValues(field).isEmpty() ? NO_MATCH : 1f;
+        }
+    }
+
+    /**
+     * A range of values, either end possibly open ("*").  The release date
+     * and CODE ID compare as dates and numbers; others as text.
+     */
+    private static class Range extends LocalQuery {
+        private final String field;
+        private final String from;
+        private final String to;
+        private final boolean fromInclusive;
+        private final boolean toInclusive;
+
+        Range(String field, String from, String to, boolean fromInclusive, boolean toInclusive) {
+            this.field = field;
+            this.from = "*".equals(from) ? null : from;
+            this.to = "*".equals(to) ? null : to;
+            this.fromInclusive = fromInclusive;
+            this.toInclusive = toInclusive;
+        }
+
+        @Override
+        float score(LocalDocument doc) {
+            for ( String value : doc.getValues(field) )
+                if (inRange(value))
+                    return 1f;
+            return NO_MATCH;
+        }
+
+        private boolean inRange(String value) {
+            return (null==from || check(compare(value, from), fromInclusive)) &&
+                   (null==to || check(-compare(value, to), toInclusive));
+        }
+
+        private static boolean check(int comparison, boolean inclusive) {
+            return comparison > 0 || (inclusive && 0==comparison);
+        }
+
+        private int compare(String value, String bound) {
+            if (LocalDocument.DATE_FIELD.equals(field)) {
+                Instant v = LocalDocument.parseDate(value);
+                Instant b = LocalDocument.parseDate(bound);
+                if (null!=v && null!=b)
+                    return v.compareTo(b);
+            } else if ("codeId".equals(field)) {
+                try {
+                    return Long.compare(Long.parseLong(value), Long.parseLong(bound));
+                } catch ( NumberFormatException e ) {
+                    // compare as text
+                }
+            }
+            return value.compareTo(bound);
+        }
+    }
+
+    /**
+     * How a clause of a Bool participates.
+     */
+    private enum Occur { MUST, SHOULD, MUST_NOT }
+
+    /**
+     * A combination of clauses.  All MUST clauses must match, no MUST_NOT
+     * clause may, and if there are no MUST clauses at least one SHOULD must.
+     */
+    private static class Bool extends LocalQuery {
+        private final List<Occur> occurs = new ArrayList<>();
+        private final List<LocalQuery> queries = new ArrayList<>();
+
+        void add(Occur occur, LocalQuery query) {
+            occurs.add(occur);
+            queries.add(query);
+        }
+
+        @Override
+        float score(LocalDocument doc) {
+            float score = 0f;
+            boolean required = false;
+            boolean matched = false;
+
+            for ( int i = 0; i < queries.size(); ++i ) {
+                Occur occur = occurs.get(i);
+                float s = queries.get(i).score(doc);
+
+                if (Occur.MUST_NOT==occur) {
+                    if (s >= 0)
+                        return NO_MATCH;
+                    continue;
+                }
+                if (Occur.MUST==occur) {
+                    required = true;
+                    if (s < 0)
+                        return NO_MATCH;
+                }
+                if (s >= 0) {
+                    matched = true;
+                    score += s;
+                }
+            }
+
+            // a purely negative query matches everything else
+            if (!required && !matched && occurs.contains(Occur.SHOULD))
+                return NO_MATCH;
+            return score;
+        }
+    }
+
+    /**
+     * Recursive descent parser of the query syntax.
+     */
+    private static class Parser {
+        private static final int CONJ_NONE = 0, CONJ_AND = 1, CONJ_OR = 2;
+        private static final String SPECIAL = "()[]{}\":";
+
+        private final String q;
+        private int pos = 0;
+
+        Parser(String q) {
+            this.q = q;
+        }
+
+        /**
+         * Parse clauses up to the end, or a closing parenthesis.
+         */
+        LocalQuery parseClauses(String field) {
+            Bool bool = new Bool();
+            int conjunction = CONJ_NONE;
+
+            while (true) {
+                skipSpace();
+                if (pos >= q.length() || ')'==q.charAt(pos))
+                    break;
+
+                if (word("AND") || symbol("&&")) {
+                    conjunction = CONJ_AND;
+                    continue;
+                }
+                if (word("OR") || symbol("||")) {
+                    conjunction = CONJ_OR;
+                    continue;
+                }
+
+                Occur occur = null;
+                if (word("NOT") || symbol("!") || symbol("-"))
+                    occur = Occur.MUST_NOT;
+                else if (symbol("+"))
+                    occur = Occur.MUST;
+
+                addClause(bool, conjunction, occur, parsePrimary(field));
+                conjunction = CONJ_NONE;
+            }
+
+            // unwrap a lone clause
+            if (1==bool.queries.size() && Occur.MUST_NOT!=bool.occurs.get(0))
+                return bool.queries.get(0);
+            return bool;
+        }
+
+        /**
+         * Add a clause as the classic query parser does with q.op=AND: an OR
+         * makes the clauses either side of it optional.
+         */
+        private static void addClause(Bool bool, int conjunction, Occur modifier, LocalQuery query) {
+            int last = bool.occurs.size() - 1;
+
+            if (last >= 0 && Occur.MUST_NOT!=bool.occurs.get(last)) {
+                if (CONJ_AND==conjunction)
+                    bool.occurs.set(last, Occur.MUST);
+                else if (CONJ_OR==conjunction)
+                    bool.occurs.set(last, Occur.SHOULD);
+            }
+
+            if (null!=modifier)
+                bool.add(modifier, query);
+            else
+                bool.add((CONJ_OR==conjunction) ? Occur.SHOULD : Occur.MUST, query);
+        }
+
+        /**
+         * Parse a group, phrase, range, or (field-prefixed) term.
+         */
+        private LocalQuery parsePrimary(String field) {
+            skipSpace();
+            if (pos >= q.length())
+                throw new IllegalArgumentException("Unexpected end of query");
+
+            char c = q.charAt(pos);
+            if ('('==c) {
+                ++pos;
+                LocalQuery group = parseClauses(field);
+                expect(')');
+                return group;
+            }
+            if ('"'==c)
+                return new Phrase(field, readQuoted());
+            if ('['==c || '{'==c)
+                return parseRange(field);
+
+            int start = pos;
+            StringBuilder text = new StringBuilder();
+            StringBuilder pattern = new StringBuilder();
+            boolean wild = false;
+            while (pos < q.length()) {
+                c = q.charAt(pos);
+
+                if (Character.isWhitespace(c) || SPECIAL.indexOf(c) >= 0)
+                    break;
+                if ('\\'==c && pos + 1 < q.length()) {
+                    c = q.charAt(++pos);
+                    text.append(c);
+                    pattern.append(Pattern.quote(String.valueOf(c)));
+                } else if ('*'==c || '?'==c) {
+                    wild = true;
+                    text.append(c);
+                    pattern.append(('*'==c) ? ".*" : ".");
+                } else {
+                    text.append(c);
+                    pattern.append(Pattern.quote(String.valueOf(c)));
+                }
+                ++pos;
+            }
+            if (pos==start)
+                throw new IllegalArgumentException("Unexpected '" + c + "' at position " + pos);
+
+            // a field name
+            if (pos < q.length() && ':'==q.charAt(pos)) {
+                ++pos;
+                String name = q.substring(start, pos - 1);
+
+                if ("*".equals(name)) {
+                    skipSpace();
+                    expect('*');
+                    return new Everything();
+                }
+                if (pos < q.length() && '*'==q.charAt(pos) &&
+                        (pos + 1==q.length() || Character.isWhitespace(q.charAt(pos + 1)) || ')'==q.charAt(pos + 1))) {
+                    ++pos;
+                    return new Exists(name);
+                }
+                return parsePrimary(name);
+            }
+
+            if (!wild)
+                return new Term(field, text.toString(), null);
+            // text tokens are in lower case
+            return new Term(field, text.toString(), Pattern.compile(pattern.toString(),
+                    LocalDocument.isExact(field) ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE));
+        }
+
+        /**
+         * Parse a [from TO to] range; braces for exclusive ends.
+         */
+        private LocalQuery parseRange(String field) {
+            boolean fromInclusive = '['==q.charAt(pos++);
+            String from = readRangeValue();
+            skipSpace();
+            if (!word("TO"))
+                throw new IllegalArgumentException("Expected TO at position " + pos);
+            String to = readRangeValue();
+            skipSpace();
+
+            if (pos >= q.length() || (']'!=q.charAt(pos) && '}'!=q.charAt(pos)))
+                throw new IllegalArgumentException("Unterminated range");
+            boolean toInclusive = ']'==q.charAt(pos++);
+
+            return new Range(field, from, to, fromInclusive, toInclusive);
+        }
+
+        private String readRangeValue() {
+            skipSpace();
+            if (pos < q.length() && '"'==q.charAt(pos))
+                return readQuoted();
+
+            StringBuilder value = new StringBuilder();
+            while (pos < q.length() && !Character.isWhitespace(q.charAt(pos)) && ']'!=q.charAt(pos) && '}'!=q.charAt(pos)) {
+                if ('\\'==q.charAt(pos) && pos + 1 < q.length())
+                    ++pos;
+                value.append(q.charAt(pos++));
+            }
+            return value.toString();
+        }
+
+        private String readQuoted() {
+            StringBuilder text = new StringBuilder();
+
+            for ( ++pos; pos < q.length() && '"'!=q.charAt(pos); ++pos ) {
+                if ('\\'==q.charAt(pos) && pos + 1 < q.length())
+                    ++pos;
+                text.append(q.charAt(pos));
+            }
+            expect('"');
+            return text.toString();
+        }
+
+        private void expect(char c) {
+            if (pos >= q.length() || c!=q.charAt(pos))
+                throw new IllegalArgumentException("Expected '" + c + "' at position " + pos);
+            ++pos;
+        }
+
+        private void skipSpace() {
+            while (pos < q.length() && Character.isWhitespace(q.charAt(pos)))
+                ++pos;
+        }
+
+        /**
+         * Consume an operator word, if next and followed by a space.
+         */
+        private boolean word(String w) {
+            int end = pos + w.length();
+
+            if (q.startsWith(w, pos) && end < q.length() && Character.isWhitespace(q.charAt(end))) {
+                pos = end;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Consume an operator symbol, if next.
+         */
+        private boolean symbol(String s) {
+            if (q.startsWith(s, pos) && pos + s.length() < q.length()) {
+                pos += s.length();
+                return true;
+            }
+            return false;
+        }
+    }
+}
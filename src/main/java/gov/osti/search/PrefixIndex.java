@@ -0,0 +1,202 @@
+package gov.osti.search;
+
+import java.text.Normalizer;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable prefix lookup table for typeahead suggestions.
+ *
+ * Each distinct term is stored once, with the number of records it came from.
+ * Lookup keys are the normalized term (lower case, no accents, single spaces)
+ * starting at each of its words, so "John Smith" is found by "jo" or "sm".  The
+ * keys are kept in one sorted array; a prefix lookup is a binary search for
+ * the first key, then a scan of the adjacent keys sharing the prefix.
+ */
+public class PrefixIndex {
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    /** An index with no terms. */
+    public static final PrefixIndex EMPTY = new PrefixIndex(new String[0], new int[0], new String[0], new int[0]);
+
+    // sorted lookup keys, and the term number each belongs to
+    private final String[] keys;
+    private final int[] terms;
+    // each term's text and record count
+    private final String[] values;
+    private final int[] counts;
+
+    /**
+     * A suggested term.
+     */
+    public static class Suggestion {
+        private final String value;
+        private final int count;
+
+        Suggestion(String value, int count) {
+            this.value = value;
+            this.count = count;
+        }
+
+        /**
+         * Get the suggested term.
+         *
+         * @return the term as it appears in records
+         */
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * Get the number of records containing the term.
+         *
+         * @return the record count
+         */
+        public int getCount() {
+            return count;
+        }
+    }
+
+    // most frequent first, then alphabetical
+    public static final Comparator<Suggestion> BY_COUNT = Comparator
+            .comparingInt(Suggestion::getCount).reversed()
+            .thenComparing(Suggestion::getValue, String.CASE_INSENSITIVE_ORDER);
+
+    private PrefixIndex(String[] keys, int[] terms, String[] values, int[] counts) {
+        this.keys = keys;
+        this.terms = terms;
+        this.values = values;
+        this.counts = counts;
+    }
+
+    /**
+     * Build an index of terms.  Terms differing only in case, accents, or
+     * spacing are combined, under the most frequent spelling.
+     *
+     * @param termCounts each term and the number of records containing it
+     * @return the PrefixIndex
+     */
+    public static PrefixIndex build(Map<String, Integer> termCounts) {
+        // combine terms by normalized form
+        Map<String, Suggestion> combined = new HashMap<>();
+        for ( Map.Entry<String, Integer> entry : termCounts.entrySet() ) {
+            String key = normalize(entry.getKey());
+            int count = entry.getValue();
+
+            if (key.isEmpty() || count <= 0)
+                continue;
+
+            Suggestion existing = combined.get(key);
+            if (null==existing) {
+                combined.put(key, new Suggestion(entry.getKey().trim(), count));
+            } else {
+                String value = (count > existing.count) ? entry.getKey().trim() : existing.value;
+                combined.put(key, new Suggestion(value, existing.count + count));
+            }
+        }
+
+        String[] values = new String[combined.size()];
+        int[] counts = new int[combined.size()];
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>();
+        int term = 0;
+        for ( Map.Entry<String, Suggestion> entry : combined.entrySet() ) {
+            String key = entry.getKey();
+            values[term] = entry.getValue().value;
+            counts[term] = entry.getValue().count;
+
+            // look up by each word start
+            for ( int start = 0; start >= 0; start = key.indexOf(' ', start) ) {
+                if (' '==key.charAt(start))
+                    ++start;
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(key.substring(start), term));
+            }
+            ++term;
+        }
+        entries.sort(Map.Entry.comparingByKey());
+
+        String[] keys = new String[entries.size()];
+        int[] terms = new int[entries.size()];
+        for ( int i = 0; i < keys.length; ++i ) {
+            keys[i] = entries.get(i).getKey();
+            terms[i] = entries.get(i).getValue();
+        }
+        return new PrefixIndex(keys, terms, values, counts);
+    }
+
+    /**
+     * Normalize text for lookup: lower case, accents removed, and whitespace
+     * collapsed to single spaces.
+     *
+     * @param text the text
+     * @return the normalized text; empty if null
+     */
+    public static String normalize(String text) {
+        if (null==text)
+            return "";
+
+        String plain = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return SPACES.matcher(plain.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * Find the most frequent terms with a word starting with a prefix.
+     *
+     * @param prefix the text typed so far
+     * @param max the maximum number of suggestions
+     * @return up to max Suggestions, most frequent first
+     */
+    public List<Suggestion> suggest(String prefix, int max) {
+        String key = normalize(prefix);
+
+        if (key.isEmpty() || max <= 0)
+            return Collections.emptyList();
+
+        // first key at or after the prefix; keys may repeat, so not Arrays.binarySearch
+        int i = 0;
+        for ( int high = keys.length; i < high; ) {
+            int middle = (i + high) >>> 1;
+
+            if (keys[middle].compareTo(key) < 0)
+                i = middle + 1;
+            else
+                high = middle;
+        }
+
+        // keep the most frequent, least frequent at the head
+        PriorityQueue<Suggestion> best = new PriorityQueue<>(max + 1, BY_COUNT.reversed());
+        Set<Integer> seen = new HashSet<>();
+        for ( ; i < keys.length && keys[i].startsWith(key); ++i ) {
+            int term = terms[i];
+
+            if (!seen.add(term))
+                continue;
+            best.add(new Suggestion(values[term], counts[term]));
+            if (best.size() > max)
+                best.poll();
+        }
+
+        List<Suggestion> results = new ArrayList<>(best);
+        results.sort(BY_COUNT);
+        return results;
+    }
+
+    /**
+     * Get the number of distinct terms.
+     *
+     * @return the term count
+     */
+    public int size() {
+        return values.length;
+    }
+}
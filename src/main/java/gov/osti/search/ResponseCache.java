@@ -0,0 +1,161 @@
+package gov.osti.search;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Bounded, time-limited, least-recently-used cache of rendered search service
+ * responses.
+ *
+ * Entries are dropped when the cache exceeds its maximum size (least recently
+ * used first), or when older than the time-to-live.  A maximum size of 0
+ * disables caching altogether.
+ *
+ * @param <K> the cache key type
+ * @param <V> the cached value type
+ */
+public class ResponseCache<K, V> {
+    // limits
+    private final int maxSize;
+    private final long ttl;
+
+    // statistics
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * A cached value and the time at which it should no longer be used.
+     */
+    private static class Entry<V> {
+        private final V value;
+        private final long expires;
+
+        Entry(V value, long expires) {
+            this.value = value;
+            this.expires = expires;
+        }
+    }
+
+    // access-ordered, so the least recently used entry is evicted first
+    private final Map<K, Entry<V>> cache;
+
+    /**
+     * Create a cache.
+     *
+     * @param maxSize the maximum number of entries; 0 disables caching
+     * @param ttl the lifetime of each entry, in milliseconds
+     */
+    public ResponseCache(int maxSize, long ttl) {
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.cache = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > ResponseCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Whether or not this cache stores anything.
+     *
+     * @return true if enabled
+     */
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    /**
+     * Look up a cached value.
+     *
+     * @param key the cache key
+     * @return the cached value if present and not expired, or null
+     */
+    public V get(K key) {
+        if (null==key || !isEnabled())
+            return null;
+
+        synchronized (cache) {
+            Entry<V> entry = cache.get(key);
+
+            if (null!=entry && entry.expires > System.currentTimeMillis()) {
+                hits.incrementAndGet();
+                return entry.value;
+            }
+            // expired, drop it
+            if (null!=entry)
+                cache.remove(key);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Store a value.
+     *
+     * @param key the cache key
+     * @param value the value to cache
+     */
+    public void put(K key, V value) {
+        if (null==key || null==value || !isEnabled())
+            return;
+
+        synchronized (cache) {
+            cache.put(key, new Entry<>(value, System.currentTimeMillis() + ttl));
+        }
+    }
+
+    /**
+     * Remove all entries whose keys match a condition.
+     *
+     * @param condition the keys to remove
+     */
+    public void invalidateIf(Predicate<? super K> condition) {
+        synchronized (cache) {
+            for ( Iterator<K> keys = cache.keySet().iterator(); keys.hasNext(); )
+                if (condition.test(keys.next()))
+                    keys.remove();
+        }
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public void invalidateAll() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Get the number of entries currently cached.
+     *
+     * @return the cache size
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Get the number of lookups answered from the cache.
+     *
+     * @return the hit count
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Get the number of lookups not answered from the cache.
+     *
+     * @return the miss count
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+}
@@ -0,0 +1,89 @@
+package gov.osti.search;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+import org.apache.http.NameValuePair;
+
+/**
+ * A search index: takes SOLR request parameters and answers with SOLR JSON
+ * responses, and accepts the documents produced for indexing.
+ *
+ * Implementations may forward to a remote SOLR (SolrSearchBackend), or
+ * answer in-process (EmbeddedSearchBackend); callers need not care which.
+ */
+public interface SearchBackend {
+
+    /**
+     * The response to a search.  Must be closed once read.
+     */
+    interface Result extends Closeable {
+        /**
+         * Get the HTTP-style status of the search.
+         *
+         * @return 200 if successful
+         */
+        int getStatus();
+
+        /**
+         * Get the response content: a SOLR JSON response if successful, or
+         * an error message if not.
+         *
+         * @return the content
+         * @throws IOException on read errors
+         */
+        InputStream getContent() throws IOException;
+    }
+
+    /**
+     * Whether or not searching is available.
+     *
+     * @return true if searches may be made
+     */
+    boolean isSearchable();
+
+    /**
+     * Whether or not indexing is available.
+     *
+     * @return true if documents may be indexed or removed
+     */
+    boolean isIndexable();
+
+    /**
+     * Whether or not the index survives an application restart.  If not, it
+     * must be repopulated on startup.
+     *
+     * @return true if the index is persistent
+     */
+    boolean isPersistent();
+
+    /**
+     * Run a search.
+     *
+     * @param parameters the SOLR request parameters, e.g., "q", "fl", "sort"
+     * @return the Result
+     * @throws IOException on communication errors
+     */
+    Result search(List<NameValuePair> parameters) throws IOException;
+
+    /**
+     * Index one document, or a JSON array of documents.
+     *
+     * @param documents the JSON document(s) to index
+     * @return true if accepted
+     * @throws IOException on communication errors
+     */
+    boolean index(JsonNode documents) throws IOException;
+
+    /**
+     * Remove documents from the index.
+     *
+     * @param codeIds the CODE IDs to remove
+     * @return true if accepted
+     * @throws IOException on communication errors
+     */
+    boolean remove(Collection<Long> codeIds) throws IOException;
+}
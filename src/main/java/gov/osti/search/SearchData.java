@@ -1,5 +1,6 @@
 package gov.osti.search;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import java.io.IOException;
 import java.io.Reader;
@@ -10,8 +11,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.TimeZone;
@@ -35,6 +42,8 @@ public class SearchData implements Serializable {
     protected static Pattern STRING_REGEX_CHARACTERS = Pattern.compile("[{}()\\[\\].+^$\\\\|]");
     // set of special characters applying to TOKENS in SOLR
     protected static Pattern TOKEN_REGEX_CHARACTERS = Pattern.compile("[{}()\\[\\].+*?^$\\\\|\"]");
+    // a sort clause on the unique key, CODE ID
+    protected static Pattern CODE_ID_SORT = Pattern.compile("(^|,)\\s*codeId\\s");
 
     private String allFields = null;
     private String softwareTitle = null;
@@ -56,6 +65,7 @@ public class SearchData implements Serializable {
     private String sort = null;
     private Integer rows;
     private Integer start;
+    private String cursor = null;
     private String[] softwareType = null;
     private boolean showFacets;
 
@@ -181,6 +191,22 @@ public class SearchData implements Serializable {
 		this.sort = sort;
 	}
 
+    /**
+     * Get the sort for cursor paging: the requested sort, if any, with a
+     * final CODE ID tiebreak, as SOLR cursors require the unique key.
+     *
+     * @return the sort for a cursor search
+     */
+    public String getCursorSort() {
+        String requested = getSort().trim();
+
+        if (StringUtils.isEmpty(requested))
+            return "score desc,codeId asc";
+        if (CODE_ID_SORT.matcher(requested).find())
+            return requested;
+        return requested + ",codeId asc";
+    }
+
         /**
          * Escape SOLR special characters in search expressions.
          *
@@ -340,6 +366,44 @@ public class SearchData implements Serializable {
         return (0==q.length()) ? "*:*" : q.toString();
     }
 
+    /**
+     * Construct a canonical String form of these search parameters, such that
+     * equivalent searches produce the same value: String values are trimmed,
+     * blank values omitted, and array values de-duplicated and sorted.
+     *
+     * @return a String suitable for use as a search cache key, or null if
+     * one could not be constructed
+     */
+    public String toCacheKey() {
+        Map<String, Object> canonical = new TreeMap<>();
+
+        for ( Iterator<Map.Entry<String, JsonNode>> fields = mapper.valueToTree(this).fields(); fields.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode value = field.getValue();
+
+            if (value.isArray()) {
+                TreeSet<String> values = new TreeSet<>();
+                for ( JsonNode item : (ArrayNode) value )
+                    if (!StringUtils.isBlank(item.asText()))
+                        values.add(item.asText().trim());
+                if (!values.isEmpty())
+                    canonical.put(field.getKey(), values);
+            } else if (value.isTextual()) {
+                if (!StringUtils.isBlank(value.asText()))
+                    canonical.put(field.getKey(), value.asText().trim());
+            } else if (!value.isNull()) {
+                canonical.put(field.getKey(), value);
+            }
+        }
+
+        try {
+            return mapper.writeValueAsString(canonical);
+        } catch ( IOException e ) {
+            log.warn("Unable to construct search cache key: " + e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * The number of rows to return in a single page.
      * @return the rows
@@ -372,6 +436,32 @@ public class SearchData implements Serializable {
         this.start = start;
     }
 
+    /**
+     * The cursor for deep paging; "*" for the first page, then the
+     * next_cursor of each previous response.  Replaces the start row.
+     * @return the cursor
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    /**
+     * Set the paging cursor.
+     * @param cursor the cursor to set
+     */
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    /**
+     * Determine whether or not this is a cursor search.
+     * @return true if a cursor is given
+     */
+    @JsonIgnore
+    public boolean isCursorSearch() {
+        return !StringUtils.isBlank(cursor);
+    }
+
     /**
      * @return the licenses
      */
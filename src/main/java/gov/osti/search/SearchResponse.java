@@ -24,6 +24,8 @@ public class SearchResponse {
     private Integer numFound;
     @JacksonXmlProperty (isAttribute = true)
     private Integer start;
+    @JacksonXmlProperty (isAttribute = true)
+    private String nextCursor;
     @JacksonXmlElementWrapper (localName = "docs")
     @JacksonXmlProperty (localName = "doc")
     private List<DOECodeMetadata> docs = new ArrayList<>();
@@ -58,6 +60,20 @@ public class SearchResponse {
         this.start = start;
     }
 
+    /**
+     * @return the cursor for the next page, if a cursor search
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * @param nextCursor the cursor for the next page
+     */
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
     public List<DOECodeMetadata> add(DOECodeMetadata m) {
         docs.add(m);
         return docs;
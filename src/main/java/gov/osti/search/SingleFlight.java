@@ -0,0 +1,130 @@
+package gov.osti.search;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces identical concurrent lookups: while a value is being loaded for a
+ * key, other callers asking for the same key wait for that load and share its
+ * result (or its failure) rather than starting their own.
+ *
+ * Nothing is retained once a load completes; pair with a ResponseCache to keep
+ * results.  A null key is never coalesced.
+ *
+ * @param <K> the key type
+ * @param <V> the loaded value type
+ */
+public class SingleFlight<K, V> {
+    // loads in progress
+    private final ConcurrentMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+
+    // statistics
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong shared = new AtomicLong();
+
+    /**
+     * Loads a value.
+     *
+     * @param <V> the value type
+     */
+    public interface Loader<V> {
+        /**
+         * Load the value.
+         *
+         * @return the value
+         * @throws IOException on failure
+         */
+        V load() throws IOException;
+    }
+
+    /**
+     * Obtain the value for a key: join a load already in progress for it, or
+     * load it if none.
+     *
+     * @param key the key
+     * @param loader loads the value, if no load is in progress
+     * @return the loaded value
+     * @throws IOException if the load failed, or the wait was interrupted
+     */
+    public V execute(K key, Loader<V> loader) throws IOException {
+        if (null==key) {
+            loads.incrementAndGet();
+            return loader.load();
+        }
+
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = flights.putIfAbsent(key, flight);
+
+        if (null!=existing) {
+            shared.incrementAndGet();
+            return await(existing);
+        }
+
+        loads.incrementAndGet();
+        try {
+            V value = loader.load();
+            flight.complete(value);
+            return value;
+        } catch ( Throwable t ) {
+            flight.completeExceptionally(t);
+            throw t;
+        } finally {
+            // later callers start afresh
+            flights.remove(key, flight);
+        }
+    }
+
+    /**
+     * Wait for another caller's load to complete.
+     */
+    private static <V> V await(CompletableFuture<V> flight) throws IOException {
+        try {
+            return flight.get();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting on a shared lookup.");
+        } catch ( ExecutionException e ) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Get the number of loads currently in progress.
+     *
+     * @return the in-flight count
+     */
+    public int size() {
+        return flights.size();
+    }
+
+    /**
+     * Get the number of loads performed.
+     *
+     * @return the load count
+     */
+    public long getLoads() {
+        return loads.get();
+    }
+
+    /**
+     * Get the number of callers that shared another caller's load.
+     *
+     * @return the shared count
+     */
+    public long getShared() {
+        return shared.get();
+    }
+}
@@ -5,6 +5,7 @@ package gov.osti.search;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import java.io.Serializable;
 import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * SOLR facet result section.
@@ -15,6 +16,8 @@ import java.util.LinkedHashMap;
 public class SolrFacet implements Serializable {
     private Integer count;
     private LinkedHashMap<String,Integer> values = new LinkedHashMap<>();
+    // bucketed counts of any other facets, by name
+    private LinkedHashMap<String, Map<String,Integer>> fields = new LinkedHashMap<>();
     
     /**
      * Add a key-value pair to the facet values.
@@ -33,6 +36,28 @@ public class SolrFacet implements Serializable {
         return values;
     }
 
+    /**
+     * Add the bucketed counts of a named facet.
+     *
+     * @param name the facet name
+     * @param counts the count of each value
+     * @return this Object for chaining
+     */
+    public SolrFacet addField(String name, Map<String,Integer> counts) {
+        fields.put(name, counts);
+
+        return this;
+    }
+
+    /**
+     * Get the bucketed counts of all named facets other than the dates.
+     *
+     * @return the counts of each value, by facet name
+     */
+    public LinkedHashMap<String, Map<String,Integer>> getFields() {
+        return fields;
+    }
+
     /**
      * @return the count
      */
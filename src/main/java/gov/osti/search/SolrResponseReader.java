@@ -0,0 +1,165 @@
+package gov.osti.search;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Incremental reader of SOLR JSON search responses.
+ *
+ * Rather than reading the entire response into a String and binding it to a
+ * SolrResult, walks the response with a streaming parser and decodes each
+ * document's stored "json" field directly from the parser's buffer, handing
+ * each to a DocumentHandler as it is read.  Only one document is held in
+ * memory at a time.
+ *
+ * Documents may also be read "raw", as a JsonParser over the stored JSON, for
+ * callers that copy the tokens straight to output without binding them; or
+ * as plain fields, for searches that do not request the stored JSON.
+ */
+public class SolrResponseReader {
+
+    /**
+     * Receives each document found in a SOLR response, in order.
+     *
+     * @param <T> the type the stored JSON is decoded to
+     */
+    public interface DocumentHandler<T> {
+        /**
+         * Handle a single document.
+         *
+         * @param document the decoded stored JSON of the document
+         * @throws IOException on output errors
+         */
+        void handle(T document) throws IOException;
+    }
+
+    /**
+     * Read a SOLR JSON response.
+     *
+     * @param <T> the type to decode stored JSON to
+     * @param in the response content
+     * @param mapper the ObjectMapper for decoding documents and facets
+     * @param type the type to decode stored JSON to
+     * @param handler the handler for each document; may be null if only the
+     * counts and facets are wanted
+     * @return a SolrResult with the response counts and any facets; the
+     * documents themselves are only passed to the handler
+     * @throws IOException on parsing errors, or if SOLR reported an error
+     */
+    public static <T> SolrResult read(InputStream in, ObjectMapper mapper, Class<T> type, DocumentHandler<T> handler) throws IOException {
+        return readRaw(in, mapper, (null==handler) ? null : json -> handler.handle(mapper.readValue(json, type)));
+    }
+
+    /**
+     * Read a SOLR JSON response, passing each document's stored JSON to the
+     * handler as a JsonParser.  The parser is only valid during the call, and
+     * is positioned before the first token.
+     *
+     * @param in the response content
+     * @param mapper the ObjectMapper for creating parsers and decoding facets
+     * @param handler the handler for each document; may be null if only the
+     * counts and facets are wanted
+     * @return a SolrResult with the response counts and any facets
+     * @throws IOException on parsing errors, or if SOLR reported an error
+     */
+    public static SolrResult readRaw(InputStream in, ObjectMapper mapper, DocumentHandler<JsonParser> handler) throws IOException {
+        return parse(in, mapper, (null==handler) ? null : parser -> readDocument(parser, mapper, handler));
+    }
+
+    /**
+     * Read a SOLR JSON response, passing each document's returned fields to
+     * the handler as a JSON object.  Intended for searches limiting the
+     * returned fields ("fl") to a few small values.
+     *
+     * @param in the response content
+     * @param mapper the ObjectMapper for decoding documents and facets
+     * @param handler the handler for each document
+     * @return a SolrResult with the response counts and any facets
+     * @throws IOException on parsing errors, or if SOLR reported an error
+     */
+    public static SolrResult readFields(InputStream in, ObjectMapper mapper, DocumentHandler<JsonNode> handler) throws IOException {
+        return parse(in, mapper, parser -> handler.handle(mapper.readTree(parser)));
+    }
+
+    /**
+     * Read a SOLR JSON response, passing the parser to the handler at the
+     * start of each document; the handler must consume the whole document.
+     */
+    private static SolrResult parse(InputStream in, ObjectMapper mapper, DocumentHandler<JsonParser> handler) throws IOException {
+        SolrResult result = new SolrResult();
+        SolrResponse response = new SolrResponse();
+        result.setSearchResponse(response);
+
+        try (JsonParser parser = mapper.getFactory().createParser(in)) {
+            if (JsonToken.START_OBJECT!=parser.nextToken())
+                throw new IOException("Unexpected SOLR response format.");
+
+            while (JsonToken.FIELD_NAME==parser.nextToken()) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+
+                if ("response".equals(name) && parser.isExpectedStartObjectToken()) {
+                    readResponse(parser, response, handler);
+                } else if ("facets".equals(name)) {
+                    result.setSolrFacet(mapper.readValue(parser, SolrFacet.class));
+                } else if ("facet_counts".equals(name)) {
+                    result.setSolrFacetCounts(mapper.readValue(parser, SolrFacetCounts.class));
+                } else if ("nextCursorMark".equals(name)) {
+                    result.setNextCursorMark(parser.getValueAsString());
+                } else if ("error".equals(name)) {
+                    throw new IOException("SOLR error: " + mapper.readValue(parser, JsonNode.class).path("msg").asText());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Read the "response" object: counts and documents.
+     */
+    private static void readResponse(JsonParser parser, SolrResponse response, DocumentHandler<JsonParser> handler) throws IOException {
+        while (JsonToken.FIELD_NAME==parser.nextToken()) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+
+            if ("numFound".equals(name)) {
+                response.setNumFound(parser.getIntValue());
+            } else if ("start".equals(name)) {
+                response.setStart(parser.getIntValue());
+            } else if ("docs".equals(name) && parser.isExpectedStartArrayToken() && null!=handler) {
+                while (JsonToken.START_OBJECT==parser.nextToken())
+                    handler.handle(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Read a single document, handing its stored "json" field to the handler
+     * if present.
+     */
+    private static void readDocument(JsonParser parser, ObjectMapper mapper, DocumentHandler<JsonParser> handler) throws IOException {
+        while (JsonToken.FIELD_NAME==parser.nextToken()) {
+            String name = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+
+            if ("json".equals(name) && JsonToken.VALUE_STRING==token) {
+                // read straight from the parser's character buffer
+                try (JsonParser json = mapper.getFactory().createParser(
+                        parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength())) {
+                    handler.handle(json);
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+}
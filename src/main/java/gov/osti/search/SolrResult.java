@@ -19,6 +19,8 @@ public class SolrResult {
     private SolrFacet facet;
     @JsonProperty(value = "facet_counts")
     private SolrFacetCounts facetCounts;
+    @JsonProperty (value = "nextCursorMark")
+    private String nextCursorMark;
 
     /**
      * Get the SearchResponse from this search.
@@ -52,4 +54,17 @@ public class SolrResult {
     public SolrFacet getSolrFacet() {
         return facet;
     }
+
+    /**
+     * Get the cursor for the next page, if a cursor search.
+     *
+     * @return the next cursor mark
+     */
+    public String getNextCursorMark() {
+        return nextCursorMark;
+    }
+
+    public void setNextCursorMark(String nextCursorMark) {
+        this.nextCursorMark = nextCursorMark;
+    }
 }
@@ -0,0 +1,157 @@
+package gov.osti.search;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import gov.osti.connectors.HttpClientRegistry;
+import gov.osti.listeners.DoeServletContextListener;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.http.HttpStatus;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * SearchBackend of a remote SOLR, searched at "search.url" and indexed
+ * through the indexing service at "index.url" and "index.removal.url", over
+ * the shared SOLR connection pool.
+ */
+public class SolrSearchBackend implements SearchBackend {
+    // logger
+    private static final Logger log = LoggerFactory.getLogger(SolrSearchBackend.class);
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final String searchUrl;
+    private final String indexUrl;
+    private final String indexRemovalUrl;
+
+    /**
+     * Create a backend.  Any blank URL disables that function.
+     *
+     * @param searchUrl the SOLR search handler URL
+     * @param indexUrl the indexing service URL
+     * @param indexRemovalUrl the index removal service URL
+     */
+    public SolrSearchBackend(String searchUrl, String indexUrl, String indexRemovalUrl) {
+        this.searchUrl = searchUrl;
+        this.indexUrl = indexUrl;
+        this.indexRemovalUrl = indexRemovalUrl;
+    }
+
+    /**
+     * A search HTTP response.
+     */
+    private static class HttpResult implements Result {
+        private final CloseableHttpResponse response;
+
+        HttpResult(CloseableHttpResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public int getStatus() {
+            return response.getStatusLine().getStatusCode();
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return response.getEntity().getContent();
+        }
+
+        @Override
+        public void close() throws IOException {
+            response.close();
+        }
+    }
+
+    @Override
+    public boolean isSearchable() {
+        return !"".equals(searchUrl);
+    }
+
+    @Override
+    public boolean isIndexable() {
+        return !"".equals(indexUrl) || !"".equals(indexRemovalUrl);
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return true;
+    }
+
+    @Override
+    public Result search(List<NameValuePair> parameters) throws IOException {
+        try {
+            HttpGet get = new HttpGet(new URIBuilder(searchUrl).addParameters(parameters).build());
+
+            return new HttpResult(DoeServletContextListener
+                    .getHttpClient(HttpClientRegistry.Downstream.SOLR)
+                    .execute(get));
+        } catch ( URISyntaxException e ) {
+            throw new IOException("Invalid search URL: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean index(JsonNode documents) throws IOException {
+        // indexing not configured
+        if ("".equals(indexUrl))
+            return true;
+
+        return post(indexUrl, documents);
+    }
+
+    @Override
+    public boolean remove(Collection<Long> codeIds) throws IOException {
+        // removal not configured
+        if ("".equals(indexRemovalUrl))
+            return true;
+
+        // create JSON delete command
+        ObjectNode deleteNode = mapper.createObjectNode();
+        ObjectNode queryNode = mapper.createObjectNode();
+        queryNode.put("query", "codeId:(" + codeIds.stream().map(String::valueOf).collect(Collectors.joining(" OR ")) + ")");
+        deleteNode.set("delete", queryNode);
+
+        return post(indexRemovalUrl, deleteNode);
+    }
+
+    /**
+     * POST a JSON request to the indexing service.
+     *
+     * @param url where to POST
+     * @param content the JSON to send
+     * @return true if the indexing service accepted it
+     * @throws IOException on communication errors
+     */
+    private static boolean post(String url, JsonNode content) throws IOException {
+        HttpPost post = new HttpPost(url);
+        post.setHeader("Content-Type", "application/json");
+        post.setHeader("Accept", "application/json");
+        post.setEntity(new StringEntity(content.toString(), "UTF-8"));
+
+        // use the shared indexer connection pool
+        try (CloseableHttpResponse response = DoeServletContextListener
+                .getHttpClient(HttpClientRegistry.Downstream.SOLR)
+                .execute(post)) {
+            if ( HttpStatus.SC_OK!=response.getStatusLine().getStatusCode() ) {
+                log.warn("Message: " + EntityUtils.toString(response.getEntity()));
+                return false;
+            }
+            EntityUtils.consume(response.getEntity());
+            return true;
+        }
+    }
+}
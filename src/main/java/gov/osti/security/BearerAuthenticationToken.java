@@ -1,5 +1,7 @@
 package gov.osti.security;
 
+import java.util.Date;
+
 import org.apache.shiro.authc.AuthenticationToken;
 
 import gov.osti.entity.User;
@@ -10,6 +12,7 @@ public class BearerAuthenticationToken implements AuthenticationToken {
 	private String apiKey = null;
 	private User user = null;
 	private String xsrfToken = null;
+	private Date expiration = null;
 	public BearerAuthenticationToken(User user, String apiKey) {
 		this.user = user;
 		this.apiKey = apiKey;
@@ -21,6 +24,11 @@ public class BearerAuthenticationToken implements AuthenticationToken {
 		this.xsrfToken = xsrfToken;
 	}
 	
+	public BearerAuthenticationToken(User user, String apiKey, String xsrfToken, Date expiration) {
+		this(user, apiKey, xsrfToken);
+		this.expiration = expiration;
+	}
+	
 	@Override
 	public Object getCredentials() {
 		return apiKey;
@@ -34,5 +42,14 @@ public class BearerAuthenticationToken implements AuthenticationToken {
 	public String getXsrfToken() {
 		return xsrfToken;
 	}
+	
+	/**
+	 * Get the expiration of the login token used, if any.
+	 * 
+	 * @return the token expiration Date, or null if not a token login
+	 */
+	public Date getExpiration() {
+		return expiration;
+	}
 
 }
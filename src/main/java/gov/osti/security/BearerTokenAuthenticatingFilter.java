@@ -47,6 +47,7 @@ public class BearerTokenAuthenticatingFilter extends AuthenticatingFilter {
 
 		String apiKey = null;
 		String xsrfToken = null;
+		Date expiration = null;
 		if (cookieVal != null) {
 			Claims claims = DOECodeCrypt.parseJWT(cookieVal);
 			xsrfToken = (String) claims.get("xsrfToken");
@@ -57,7 +58,8 @@ public class BearerTokenAuthenticatingFilter extends AuthenticatingFilter {
 			}
 			
 			Date now = new Date();
-			if (now.after(claims.getExpiration()))
+			expiration = claims.getExpiration();
+			if (now.after(expiration))
 				throw new AuthenticationException("Token is expired");
 			
 			apiKey = claims.getSubject();
@@ -66,24 +68,33 @@ public class BearerTokenAuthenticatingFilter extends AuthenticatingFilter {
 			apiKey = authorizationHeader.substring("Basic".length()).trim();
 		}
 		
-	    EntityManager em = DoeServletContextListener.createEntityManager();
-	    User currentUser = null;
-	    try {        
-                // only allow VERIFIED users
-	        TypedQuery<User> getUserByApiKey = em.createQuery("SELECT u FROM User u WHERE u.apiKey = :apiKey AND u.verified = TRUE AND u.active = TRUE", User.class);
-	        currentUser = getUserByApiKey
-                        .setParameter("apiKey", apiKey)
-                        .getSingleResult();
-	    } catch ( Exception e ) {
-                log.warn("Authentication Error: " + e.getMessage());
-	        throw new AuthenticationException("Could not find user");
-	    } finally {
-	        em.close();  
+	    // recently authenticated users skip the database
+	    User currentUser = PrincipalCache.get(apiKey);
+	    
+	    if (null==currentUser) {
+	        EntityManager em = DoeServletContextListener.createEntityManager();
+	        try {        
+	            // only allow VERIFIED users
+	            TypedQuery<User> getUserByApiKey = em.createQuery("SELECT u FROM User u WHERE u.apiKey = :apiKey AND u.verified = TRUE AND u.active = TRUE", User.class);
+	            currentUser = getUserByApiKey
+	                    .setParameter("apiKey", apiKey)
+	                    .getSingleResult();
+	            // load ROLES now, as they are used for authorization later
+	            if (null!=currentUser.getRoles())
+	                currentUser.getRoles().size();
+	            
+	            PrincipalCache.put(apiKey, currentUser);
+	        } catch ( Exception e ) {
+	            log.warn("Authentication Error: " + e.getMessage());
+	            throw new AuthenticationException("Could not find user");
+	        } finally {
+	            em.close();  
+	        }
 	    }
 	    
 	    
 	    if (cookieVal != null) {
-			return new BearerAuthenticationToken(currentUser, apiKey, xsrfToken);
+			return new BearerAuthenticationToken(currentUser, apiKey, xsrfToken, expiration);
 	    } else {
 			return new BearerAuthenticationToken(currentUser, apiKey);
 	    }
@@ -110,12 +121,13 @@ public class BearerTokenAuthenticatingFilter extends AuthenticatingFilter {
 	
 	
 	//update cookie/jwt expiration and reissue if there is, this time with updated expiration info
+	//only done once enough of the token lifetime has passed, to avoid signing a new one every request
 	@Override
 	protected boolean onLoginSuccess(AuthenticationToken token, Subject subject, ServletRequest request, ServletResponse response) throws Exception {
 		HttpServletResponse res = (HttpServletResponse) response;
 		BearerAuthenticationToken bat = (BearerAuthenticationToken) token;
 		//only reissue cookie if it has an XSRF token e.g. means this was a cookie request
-		if (StringUtils.isNotBlank(bat.getXsrfToken())) {
+		if (StringUtils.isNotBlank(bat.getXsrfToken()) && DOECodeCrypt.isRefreshDue(bat.getExpiration())) {
 			String accessToken = DOECodeCrypt.generateLoginJWT((String) bat.getCredentials(), bat.getXsrfToken());
 			NewCookie cookie = DOECodeCrypt.generateNewCookie(accessToken);
 			res.setHeader("SET-COOKIE", cookie.toString());
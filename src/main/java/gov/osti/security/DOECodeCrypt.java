@@ -4,19 +4,56 @@ import java.math.BigInteger;
 import java.security.SecureRandom;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import javax.ws.rs.core.Cookie;
 import javax.ws.rs.core.NewCookie;
 
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.osti.listeners.DoeServletContextListener;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 
 public class DOECodeCrypt {
+    private static final Logger log = LoggerFactory.getLogger(DOECodeCrypt.class);
 
     private static final SecureRandom random = new SecureRandom();
     // set the TIME OUT value in MINUTES
     private static final int TIMEOUT_IN_MINUTES = 45;
+    // fraction of the token lifetime that must pass before a login token is reissued
+    private static final double REFRESH_FRACTION = getRefreshFraction();
+    // maximum number of verified login tokens to remember
+    private static final int MAX_VERIFIED_TOKENS = 5000;
+
+    // verified login token Claims, keyed by token digest; LRU order
+    private static final Map<String, Claims> verifiedClaims = new LinkedHashMap<String, Claims>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Claims> eldest) {
+            return size() > MAX_VERIFIED_TOKENS;
+        }
+    };
+
+    /**
+     * Read the configured "auth.token.refresh" fraction, if any.  Must be
+     * between 0 (always reissue) and 1 (never reissue early); defaults to 0.5.
+     *
+     * @return the token refresh fraction
+     */
+    private static double getRefreshFraction() {
+        double fraction = DoeServletContextListener.getDoubleProperty("auth.token.refresh", 0.5);
+
+        if (fraction >= 0 && fraction <= 1)
+            return fraction;
+
+        log.warn("Invalid auth.token.refresh value: " + fraction);
+        return 0.5;
+    }
 
     public static String nextRandomString() {
         return new BigInteger(130, random).toString(32);
@@ -47,11 +84,59 @@ public class DOECodeCrypt {
 	    return Jwts.builder().setIssuer("doecode").setId(confirmationCode).setSubject(email).signWith(SignatureAlgorithm.HS256,"Secret").compact();
 	}
 	
+	/**
+	 * Verify and parse a JWT.  Tokens carrying an expiration (login tokens)
+	 * are remembered once verified, until they expire, so repeated requests
+	 * with the same token skip signature verification and parsing.
+	 *
+	 * @param jwt the JWT to parse
+	 * @return the Claims of the token
+	 */
 	public static Claims parseJWT(String jwt) {
+		String key = (null==jwt) ? null : DigestUtils.sha256Hex(jwt);
+		
+		if (null!=key) {
+			synchronized (verifiedClaims) {
+				Claims claims = verifiedClaims.get(key);
+				
+				if (null!=claims) {
+					if (claims.getExpiration().after(new Date()))
+						return claims;
+					// expired; verify again, which will fail
+					verifiedClaims.remove(key);
+				}
+			}
+		}
+		
 		Claims claims = Jwts.parser().setSigningKey("Secret").parseClaimsJws(jwt).getBody();
+		
+		// confirmation tokens do not expire, so are not cached
+		if (null!=key && null!=claims.getExpiration()) {
+			synchronized (verifiedClaims) {
+				verifiedClaims.put(key, claims);
+			}
+		}
 		return claims;
 	}
 	
+	/**
+	 * Determine whether a login token with the given expiration should be
+	 * reissued; that is, if more than the configured fraction of its lifetime
+	 * has passed.
+	 *
+	 * @param expiration the token's expiration Date
+	 * @return true if a new token should be issued
+	 */
+	public static boolean isRefreshDue(Date expiration) {
+		if (null==expiration)
+			return true;
+		
+		long lifetime = TimeUnit.MINUTES.toMillis(TIMEOUT_IN_MINUTES);
+		long remaining = expiration.getTime() - System.currentTimeMillis();
+		
+		return (lifetime - remaining) >= (long)(lifetime * REFRESH_FRACTION);
+	}
+	
 	
 	public static NewCookie generateNewCookie(String accessToken) {
 		Calendar c = Calendar.getInstance();
@@ -0,0 +1,161 @@
+package gov.osti.security;
+
+import gov.osti.entity.User;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import static gov.osti.listeners.DoeServletContextListener.getIntProperty;
+
+/**
+ * Bounded, time-limited cache of authenticated User principals by API key.
+ *
+ * Used by the BearerTokenAuthenticatingFilter to avoid a database lookup on
+ * every authenticated request.  Only VERIFIED and ACTIVE users are stored;
+ * any change to a User's roles, status flags, or API key must invalidate its
+ * entry via invalidate().  A cached User is shared by every request using
+ * its key, so must never be modified; change a copy read from the database.
+ *
+ * Size and lifetime may be set via "auth.cache.size" (entries) and
+ * "auth.cache.ttl" (seconds); a size of 0 disables caching.
+ */
+public class PrincipalCache {
+    // defaults, if not configured
+    private static final int DEFAULT_SIZE = 1000;
+    private static final long DEFAULT_TTL_SECONDS = 300;
+
+    private static final int MAX_SIZE = getIntProperty("auth.cache.size", DEFAULT_SIZE);
+    private static final long TTL = TimeUnit.SECONDS.toMillis(getIntProperty("auth.cache.ttl", (int)DEFAULT_TTL_SECONDS));
+
+    // statistics
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+
+    /**
+     * A cached User and the time at which it should no longer be used.
+     */
+    private static class Entry {
+        private final User user;
+        private final long expires;
+
+        Entry(User user, long expires) {
+            this.user = user;
+            this.expires = expires;
+        }
+    }
+
+    // access-ordered, so the least recently used entry is evicted first
+    private static final Map<String, Entry> cache = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    /**
+     * Look up a cached User principal by API key.
+     *
+     * @param apiKey the API key
+     * @return the cached User if present and not expired, or null
+     */
+    public static User get(String apiKey) {
+        if (null==apiKey || MAX_SIZE <= 0)
+            return null;
+
+        synchronized (cache) {
+            Entry entry = cache.get(apiKey);
+
+            if (null!=entry && entry.expires > System.currentTimeMillis()) {
+                hits.incrementAndGet();
+                return entry.user;
+            }
+            // expired, drop it
+            if (null!=entry)
+                cache.remove(apiKey);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Store a User principal for its API key.
+     *
+     * @param apiKey the API key
+     * @param user the authenticated User
+     */
+    public static void put(String apiKey, User user) {
+        if (null==apiKey || null==user || MAX_SIZE <= 0)
+            return;
+
+        synchronized (cache) {
+            cache.put(apiKey, new Entry(user, System.currentTimeMillis() + TTL));
+        }
+    }
+
+    /**
+     * Remove any cached principal for this API key.
+     *
+     * @param apiKey the API key to invalidate
+     */
+    public static void invalidate(String apiKey) {
+        if (null==apiKey)
+            return;
+
+        synchronized (cache) {
+            cache.remove(apiKey);
+        }
+    }
+
+    /**
+     * Remove any cached principal for a User, whatever its API key; used when
+     * the key is not known, as for changes made on another node.
+     *
+     * @param userId the User ID to invalidate
+     */
+    public static void invalidateUser(Object userId) {
+        if (null==userId)
+            return;
+
+        synchronized (cache) {
+            cache.values().removeIf(entry -> userId.equals(entry.user.getUserId()));
+        }
+    }
+
+    /**
+     * Remove all cached principals.
+     */
+    public static void invalidateAll() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Get the number of principals currently cached.
+     *
+     * @return the cache size
+     */
+    public static int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Get the number of lookups answered from the cache.
+     *
+     * @return the hit count
+     */
+    public static long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Get the number of lookups that required a database query.
+     *
+     * @return the miss count
+     */
+    public static long getMisses() {
+        return misses.get();
+    }
+}
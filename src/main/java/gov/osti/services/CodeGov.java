@@ -1,6 +1,8 @@
 package gov.osti.services;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.fasterxml.jackson.annotation.JsonFilter;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -12,11 +14,13 @@ import com.fasterxml.jackson.databind.ser.FilterProvider;
 import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
 import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
 
+import gov.osti.connectors.HttpClientRegistry;
 import gov.osti.entity.MetadataSnapshot;
 import gov.osti.entity.DOECodeMetadata;
 import gov.osti.entity.Site;
 import gov.osti.listeners.DoeServletContextListener;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URLEncoder;
 import java.nio.file.Files;
 import java.nio.file.Paths;
@@ -25,10 +29,17 @@ import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.format.FormatStyle;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.nio.file.attribute.BasicFileAttributes;
 
 import javax.persistence.EntityManager;
@@ -38,25 +49,24 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.Produces;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import org.apache.shiro.authz.annotation.RequiresAuthentication;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.util.EntityUtils;
-import org.apache.http.client.config.RequestConfig;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.entity.mime.HttpMultipartMode;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
 import org.apache.http.entity.mime.content.FileBody;
 import org.apache.http.entity.mime.content.StringBody;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
 
 import java.util.TimeZone;
 import org.apache.shiro.authz.annotation.RequiresRoles;
@@ -90,6 +100,15 @@ public class CodeGov {
     // API path to archiver services if available
     private static String ARCHIVER_URL = DoeServletContextListener.getConfigurationProperty("archiver.url");
 
+    // maximum number of concurrent labor hours requests to the archiver
+    private static final int LABOR_HOURS_THREADS = 10;
+
+    // number of Snapshots to read from the database at a time
+    private static final int PAGE_SIZE = 500;
+
+    // media type for newline-delimited JSON output
+    private static final String NDJSON = "application/x-ndjson";
+
     /**
      * Creates a new instance of MetadataResource for use with Code.gov
      */
@@ -159,59 +178,9 @@ public class CodeGov {
             .setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE)
             .setSerializationInclusion(JsonInclude.Include.NON_NULL)
             .addMixIn(Object.class, PropertyFilterMixIn.class)
+            .setFilterProvider(filter)
             .setTimeZone(TimeZone.getDefault());
 
-    /**
-     * Intended to be a List of retrieved Metadata records/projects.
-     */
-    private class RecordsList {
-
-        // the records
-        private List<DOECodeMetadata> records;
-        // a total count of a matched query
-        private long total;
-
-        RecordsList(List<DOECodeMetadata> records) {
-            this.records = records;
-        }
-
-        /**
-         * Acquire the list of records (a single page of results).
-         *
-         * @return a List of DOECodeMetadata Objects
-         */
-        public List<DOECodeMetadata> getRecords() {
-            return records;
-        }
-
-        /**
-         * Set the current page of results.
-         *
-         * @param records a List of DOECodeMetadata Objects for this page
-         */
-        public void setRecords(List<DOECodeMetadata> records) {
-            this.records = records;
-        }
-
-        /**
-         * Set a TOTAL count of matches for this search/list.
-         *
-         * @param count the count to set
-         */
-        public void setTotal(long count) {
-            total = count;
-        }
-
-        /**
-         * Get the TOTAL number of matching rows.
-         *
-         * @return the total count matched
-         */
-        public long getTotal() {
-            return total;
-        }
-    }
-
     /**
      * Listing current Code.gov JSON data.
      *
@@ -334,116 +303,147 @@ public class CodeGov {
     /**
      * Acquire a listing of all Approved records.
      *
+     * Records are read from the database a page at a time and written out
+     * as they are enriched, so memory use does not grow with the catalog.
+     * By default the output is a JSON object of the form
+     *
+     * {"records":[{"code_id":n, ...}, ...], "total":n}
+     *
+     * or, if format is "ndjson", one JSON record per line.
+     *
+     * @param format (optional) "ndjson" for newline-delimited JSON records
      * @return the Metadata information in the desired format for Scrapper
-     * @throws JsonProcessingException
      */
     @GET
     @Path("/listrecords")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, NDJSON})
     @RequiresAuthentication
     @RequiresRoles("ContentAdmin")
-    public Response listApprovedSnapshots()
-            throws JsonProcessingException {
-        EntityManager em = DoeServletContextListener.createEntityManager();
-
-        try {
-            TypedQuery<MetadataSnapshot> query;
-
-            // find all Approved records
-            query = em.createNamedQuery("MetadataSnapshot.findAllByStatus", MetadataSnapshot.class)
-                    .setParameter("status", DOECodeMetadata.Status.Approved);
-
-            // lookup Snapshot JSON at time of Approval
-            List<MetadataSnapshot> snapshots = query.getResultList();
-
-            // map Snapshot JSON to Metadata objects
-            List<DOECodeMetadata> metadataList = new ArrayList<>();
-            for (MetadataSnapshot s : snapshots) {
-                // pull metadata from snapshot
-                DOECodeMetadata md = JSON_MAPPER.readValue(s.getJson(), DOECodeMetadata.class);
-
-                if (!md.getIsLimited())
-                    metadataList.add(md);
-            }
-
-            // create a List of Metadata records, then filter down to desired results
-            RecordsList records = new RecordsList(metadataList);
-            ObjectNode recordsObject = mapper.setFilterProvider(filter).valueToTree(records);
-
-            // lookup Announced Snapshot status info for each item
-            TypedQuery<MetadataSnapshot> querySnapshot = em.createNamedQuery("MetadataSnapshot.findByCodeIdAndStatus", MetadataSnapshot.class)
-                    .setParameter("status", DOECodeMetadata.Status.Announced);
-
-            // lookup Lab Name for each item
-            TypedQuery<Site> querySite = em.createNamedQuery("Site.findBySiteCode", Site.class);
-
-            JsonNode recordNode = recordsObject.get("records");
-            if (recordNode.isArray()) {
-                int rowCount = 0;
-                for (JsonNode objNode : recordNode) {
-                    rowCount++;
-
-                    // get code_id to find Snapshot
-                    long codeId = objNode.get("code_id").asLong();
-                    querySnapshot.setParameter("codeId", codeId);
-
-                    // if Announced Snapshot exists, then it has been "ever_announced"
-                    List<MetadataSnapshot> snapshotResults = querySnapshot.setMaxResults(1).getResultList();
-                    boolean everAnnounced = snapshotResults.size() > 0;
-
-                    // add "ever_announced" status indicator to response record
-                    ((ObjectNode) objNode).put("ever_announced", everAnnounced);
-
-                    // get site_ownership_code to find Lab
-                    String siteCode = objNode.get("site_ownership_code").asText();
-                    querySite.setParameter("site", siteCode);
-
-                    // if Site Code exists, then it create "lab_display_name" from Lab and Site Code.
-                    List<Site> siteResults = querySite.setMaxResults(1).getResultList();
-                    if (siteResults.size() > 0) {
-                        Site s = siteResults.get(0);
-
-                        String labDisplayName = s.getLabName() + " (" + s.getSiteCode() + ")";
-
-                        // add "lab_display_name" info to response record
-                        ((ObjectNode) objNode).put("lab_display_name", labDisplayName);
-                    }
-
-                    String fileName = null;
-                    String repositoryLink = null;
-                    String projectType = objNode.get("project_type").asText();
-                    JsonNode obj;
+    public Response listApprovedSnapshots(@QueryParam("format") String format) {
+        final boolean ndjson = StringUtils.equalsIgnoreCase("ndjson", format);
+
+        StreamingOutput stream = (OutputStream out) -> {
+            EntityManager em = DoeServletContextListener.createEntityManager();
+            ExecutorService executor = Executors.newFixedThreadPool(LABOR_HOURS_THREADS);
+
+            try (JsonGenerator generator = JSON_MAPPER.getFactory().createGenerator(out)) {
+                // every CODE ID with an Announced Snapshot has been "ever_announced"
+                Set<Long> announced = new HashSet<>(em
+                        .createNamedQuery("MetadataSnapshot.findCodeIdsByStatus", Long.class)
+                        .setParameter("status", DOECodeMetadata.Status.Announced)
+                        .getResultList());
+
+                // Lab display names by Site Code
+                Map<String, String> labDisplayNames = new HashMap<>();
+                for ( Site s : em.createNamedQuery("Site.findAll", Site.class).getResultList() )
+                    labDisplayNames.put(s.getSiteCode(), s.getLabName() + " (" + s.getSiteCode() + ")");
+
+                if (ndjson) {
+                    generator.setRootValueSeparator(new SerializedString("\n"));
+                } else {
+                    generator.writeStartObject();
+                    generator.writeArrayFieldStart("records");
+                }
 
-                    if ("OS".equals(projectType)) {
-                        obj = objNode.get("repository_link");
-                        repositoryLink = obj == null ? "" : obj.asText();
+                // find all Approved records, a page at a time
+                TypedQuery<MetadataSnapshot> query = em.createNamedQuery("MetadataSnapshot.findAllByStatus", MetadataSnapshot.class)
+                        .setParameter("status", DOECodeMetadata.Status.Approved)
+                        .setMaxResults(PAGE_SIZE);
+
+                long total = 0;
+                int start = 0;
+                List<MetadataSnapshot> snapshots;
+                do {
+                    snapshots = query.setFirstResult(start).getResultList();
+                    start += snapshots.size();
+
+                    // map Snapshot JSON to filtered Metadata JSON
+                    List<ObjectNode> records = new ArrayList<>();
+                    for (MetadataSnapshot s : snapshots) {
+                        DOECodeMetadata md = JSON_MAPPER.readValue(s.getJson(), DOECodeMetadata.class);
+
+                        if (!md.getIsLimited())
+                            records.add(mapper.valueToTree(md));
                     }
-                    else {
-                        obj = objNode.get("file_name");
-                        fileName = obj == null ? "" : obj.asText();
+                    // release the page from the persistence context
+                    em.clear();
+
+                    // look up labor hours concurrently, as each is a remote call
+                    List<Future<Double>> laborHours = new ArrayList<>();
+                    for (ObjectNode record : records)
+                        laborHours.add(executor.submit(() -> getProjectLaborHours(record)));
+
+                    for (int i = 0; i < records.size(); i++) {
+                        ObjectNode record = records.get(i);
+                        long codeId = record.get("code_id").asLong();
+
+                        // add "ever_announced" status indicator to response record
+                        record.put("ever_announced", announced.contains(codeId));
+
+                        // if Site Code exists, add "lab_display_name" from Lab and Site Code
+                        String labDisplayName = labDisplayNames.get(record.get("site_ownership_code").asText());
+                        if (null!=labDisplayName)
+                            record.put("lab_display_name", labDisplayName);
+
+                        double labor;
+                        try {
+                            labor = laborHours.get(i).get();
+                        } catch ( ExecutionException e ) {
+                            log.warn("Archiver Labor request error: " + e.getMessage());
+                            labor = 0.0;
+                        }
+                        record.put("labor_hours", labor);
+
+                        generator.writeTree(record);
+                        total++;
                     }
-                    Double labor = getProjectLaborHours(codeId, fileName, repositoryLink);
+                    generator.flush();
+                } while (snapshots.size() == PAGE_SIZE);
 
-                    ((ObjectNode) objNode).put("labor_hours", labor);
+                if (!ndjson) {
+                    generator.writeEndArray();
+                    generator.writeNumberField("total", total);
+                    generator.writeEndObject();
                 }
-
-                // update Total
-                recordsObject.put("total", rowCount);
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Labor hours lookup interrupted.");
+            } catch ( IOException e ) {
+                log.warn("Code.gov record listing error: " + e.getMessage());
+                throw e;
+            } finally {
+                executor.shutdownNow();
+                em.close();
             }
+        };
 
-            return Response
-                    .status(Response.Status.OK)
-                    .entity(recordsObject.toString())
-                    .build();
+        return Response
+                .ok(stream, (ndjson) ? NDJSON : MediaType.APPLICATION_JSON)
+                .build();
+    }
 
-        } catch (IOException e) {
-            log.warn("JSON conversion error: " + e.getMessage());
-            return ErrorResponse
-                    .status(Response.Status.INTERNAL_SERVER_ERROR, "JSON conversion error.")
-                    .build();
-        } finally {
-            em.close();
+    /**
+     * Look up the labor hours for a given Metadata JSON record, based on its
+     * project type.
+     *
+     * @param record the filtered Metadata JSON
+     * @return the labor hours, or 0.0 if unable to determine
+     */
+    private static double getProjectLaborHours(JsonNode record) {
+        String fileName = null;
+        String repositoryLink = null;
+        String projectType = record.get("project_type").asText();
+        JsonNode obj;
+
+        if ("OS".equals(projectType)) {
+            obj = record.get("repository_link");
+            repositoryLink = obj == null ? "" : obj.asText();
         }
+        else {
+            obj = record.get("file_name");
+            fileName = obj == null ? "" : obj.asText();
+        }
+        return getProjectLaborHours(record.get("code_id").asLong(), fileName, repositoryLink);
     }
 
     /**
@@ -459,46 +459,30 @@ public class CodeGov {
         if ( "".equals(ARCHIVER_URL) )
             return 0.0;
 
-        // set up a connection
-        CloseableHttpClient hc =
-                HttpClientBuilder
-                .create()
-                .setDefaultRequestConfig(RequestConfig
-                        .custom()
-                        .setSocketTimeout(300000)
-                        .setConnectTimeout(300000)
-                        .setConnectionRequestTimeout(300000)
-                        .build())
-                .build();
-
         try {
             String url = ARCHIVER_URL + "/latest/" + codeId;
 
             HttpGet get = new HttpGet(url);
 
-            HttpResponse response = hc.execute(get);
-
-            int statusCode = response.getStatusLine().getStatusCode();
+            try (CloseableHttpResponse response = DoeServletContextListener
+                    .getHttpClient(HttpClientRegistry.Downstream.ARCHIVER)
+                    .execute(get)) {
+                int statusCode = response.getStatusLine().getStatusCode();
 
-            String responseText = EntityUtils.toString(response.getEntity());
+                String responseText = EntityUtils.toString(response.getEntity());
 
-            if (HttpStatus.SC_OK!=statusCode) {
-                return 0.0;
-            }
+                if (HttpStatus.SC_OK!=statusCode) {
+                    return 0.0;
+                }
 
-            JsonNode projectInfo = mapper.readTree(responseText);
-            double labor = projectInfo.get("labor_hours").asDouble();
+                JsonNode projectInfo = mapper.readTree(responseText);
+                double labor = projectInfo.get("labor_hours").asDouble();
 
-            return labor;
+                return labor;
+            }
         } catch ( IOException e ) {
             log.warn("Archiver Labor request error: " + e.getMessage());
             return 0.0;
-        } finally {
-            try {
-                if (null!=hc) hc.close();
-            } catch ( IOException e ) {
-                log.warn("Close Error: " + e.getMessage());
-            }
         }
     }
 }
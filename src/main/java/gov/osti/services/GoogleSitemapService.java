@@ -3,34 +3,24 @@
  */
 package gov.osti.services;
 
-import gov.osti.entity.DOECodeMetadata;
-import gov.osti.listeners.DoeServletContextListener;
-import gov.osti.search.SearchResponse;
-import gov.osti.search.SolrDocument;
-import gov.osti.search.SolrResult;
-import static gov.osti.services.SearchService.JSON_MAPPER;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.net.URISyntaxException;
-import java.time.LocalDate;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
-import java.time.temporal.TemporalAdjusters;
+import java.io.InputStream;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
 import javax.servlet.ServletContext;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
-import org.apache.http.HttpResponse;
-import org.apache.http.HttpStatus;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.util.EntityUtils;
+import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,125 +31,107 @@ import org.slf4j.LoggerFactory;
 @Path("/sitemap/")
 public class GoogleSitemapService {
 
-     protected static final int MAX_RECORDS_PER_SITEMAP_PAGE = 20000;
-     protected static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd").withZone(ZoneId.systemDefault());
-     private static final String SEARCH_URL = DoeServletContextListener.getConfigurationProperty("search.url");
-     private static final String SITE_URL = DoeServletContextListener.getConfigurationProperty("site.url");
-
      @Context
      ServletContext context;
      @Context
      UriInfo uri;
 
      // Logger
-     private static final Logger log = LoggerFactory.getLogger(SearchService.class);
+     private static final Logger log = LoggerFactory.getLogger(GoogleSitemapService.class);
 
      /**
       * Return the list of pages of records
       *
+      * @param request the request, for conditional GET handling
+      * @param headers the request headers, for the accepted encodings
       * @return
       */
      @GET
      @Produces(MediaType.TEXT_XML)
      @Path("xml")
-     public Response getSitemapList() {
-          //Get the number of pages based on teh number of records
-          long numOfRecords = getNumberOfRecordsInIndex();
-          double numOfPages = (float) numOfRecords / MAX_RECORDS_PER_SITEMAP_PAGE;
-
-          //Get the date we want to use
-          LocalDate firstOfMonth = LocalDate.now().with(TemporalAdjusters.firstDayOfMonth());
-          String moddedDate = firstOfMonth.format(DATE_FORMATTER);
-
-          //Write out the xml
-          StringBuilder xml_string = new StringBuilder();
-          xml_string.append("<sitemapindex xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">");
-          for (int i = 0; i < numOfPages; i++) {
-               xml_string.append("<sitemap>");
-               xml_string.append("<loc>")
-                       .append(SITE_URL)
-                       .append("api/services/sitemap/xml/")
-                       .append(i + 1)
-                       .append("</loc>");
-               xml_string.append("<lastmod>").append(moddedDate).append("</lastmod>");
-               xml_string.append("</sitemap>");
+     public Response getSitemapList(@Context Request request, @Context HttpHeaders headers) {
+          try {
+               return serve(SitemapCache.get().getIndex(), request, headers);
+          } catch (IOException ex) {
+               log.error("Error in building sitemap: " + ex.getMessage());
+               return ErrorResponse.internalServerError("Sitemap unavailable.").build();
           }
-          xml_string.append("</sitemapindex>");
-
-          return Response.ok(xml_string.toString(), MediaType.TEXT_XML).build();
      }
 
      /**
       * Get a single page of Site Map results.
       * 
       * @param pageNum the page number to retrieve
+      * @param request the request, for conditional GET handling
+      * @param headers the request headers, for the accepted encodings
       * @return XML response containing the page site map
       */
      @GET
      @Produces(MediaType.TEXT_XML)
      @Path("xml/{pageNum}")
-     public Response getSitemapPage(@PathParam("pageNum") Long pageNum) {
-          long startNum = (pageNum - 1) * MAX_RECORDS_PER_SITEMAP_PAGE;
-          StringBuilder xml_string = new StringBuilder();
-
+     public Response getSitemapPage(@PathParam("pageNum") Long pageNum, @Context Request request, @Context HttpHeaders headers) {
           try {
-               CloseableHttpClient hc = HttpClientBuilder.create().build();
-               URIBuilder builder = new URIBuilder(SEARCH_URL).addParameter("q", "*:*").addParameter("rows", Integer.toString(MAX_RECORDS_PER_SITEMAP_PAGE))
-                       .addParameter("omitHeader", "true").addParameter("fl", "json").addParameter("fl", "codeId").addParameter("sort", "codeId asc").addParameter("start", Long.toString(startNum));
-               HttpGet get = new HttpGet(builder.build());
-               HttpResponse response = hc.execute(get);
+               SitemapCache.Document page = SitemapCache.get().getPage(null == pageNum ? 0 : pageNum);
+               if (null == page)
+                    return Response.ok("<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\"></urlset>", MediaType.TEXT_XML).build();
 
-               if (HttpStatus.SC_OK == response.getStatusLine().getStatusCode()) {
-                    //Create a result object
-                    SolrResult result = JSON_MAPPER.readValue(EntityUtils.toString(response.getEntity()), SolrResult.class);
-                    SearchResponse query = new SearchResponse();
-                    query.setStart(result.getSearchResponse().getStart());
-                    query.setNumFound(result.getSearchResponse().getNumFound());
+               return serve(page, request, headers);
+          } catch (IOException ex) {
+               log.error("Error in building sitemap: " + ex.getMessage());
+               return ErrorResponse.internalServerError("Sitemap unavailable.").build();
+          }
+     }
 
-                    if (null != result.getSearchResponse().getDocuments()) {
-                         for (SolrDocument doc : result.getSearchResponse().getDocuments()) {
-                              query.add(JSON_MAPPER.readValue(doc.getJson(), DOECodeMetadata.class));
-                         }
+     /**
+      * Send a precomputed sitemap document.  Clients accepting gzip get the
+      * stored compressed bytes as-is; others get them decompressed on the fly.
+      * Conditional requests are answered with 304 if it has not changed since.
+      *
+      * @param document the sitemap document
+      * @param request the request, for conditional GET handling
+      * @param headers the request headers
+      * @return the Response
+      */
+     private static Response serve(SitemapCache.Document document, Request request, HttpHeaders headers) {
+          Response.ResponseBuilder unchanged = request.evaluatePreconditions(document.getLastModified());
+          if (null != unchanged)
+               return unchanged.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).build();
+
+          Response.ResponseBuilder response;
+          if (acceptsGzip(headers)) {
+               response = Response.ok(document.getContent(), MediaType.TEXT_XML)
+                       .header(HttpHeaders.CONTENT_ENCODING, "gzip");
+          } else {
+               response = Response.ok((StreamingOutput) (out) -> {
+                    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(document.getContent()))) {
+                         IOUtils.copy(in, out);
                     }
-                    xml_string.append("<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">");
-                    query.getDocs().forEach((record) -> {
-                         xml_string.append("<url>");
-                         xml_string.append("<loc>").append(SITE_URL).append("/biblio/").append(record.getCodeId()).append("</loc>");
-                         xml_string.append("<lastmod>")
-                                 .append(DATE_FORMATTER
-                                         .format( (null==record.getDateRecordUpdated()) ? LocalDate.now() : record.getDateRecordUpdated().toInstant()) )
-                                                 .append("</lastmod>");
-                         xml_string.append("<changefreq>daily</changefreq>");
-                         xml_string.append("<priority>0.5</priority>");
-                         xml_string.append("</url>");
-                    });
-                    xml_string.append("</urlset>");
-               }
-          } catch (URISyntaxException ex) {
-               log.error("Error in getting solr count: " + ex.getMessage());
-          } catch (IOException ex) {
-               log.error("Error in getting solr count: " + ex.getMessage());
+               }, MediaType.TEXT_XML);
           }
-          return Response.ok(xml_string.toString(), MediaType.TEXT_XML).build();
+          return response
+                  .lastModified(document.getLastModified())
+                  .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                  .build();
      }
 
-     public long getNumberOfRecordsInIndex() {
-          long totalCount = 0;
-          try {
-               CloseableHttpClient hc = HttpClientBuilder.create().build();
-               URIBuilder builder = new URIBuilder(SEARCH_URL).addParameter("q", "*:*").addParameter("rows", "0").addParameter("omitHeader", "true");
-               HttpGet get = new HttpGet(builder.build());
-               HttpResponse response = hc.execute(get);
+     /**
+      * Whether or not the client accepts gzip-encoded responses.
+      *
+      * @param headers the request headers
+      * @return true if gzip is listed in Accept-Encoding, and not refused
+      */
+     private static boolean acceptsGzip(HttpHeaders headers) {
+          List<String> accepted = headers.getRequestHeader(HttpHeaders.ACCEPT_ENCODING);
+          if (null == accepted)
+               return false;
 
-               if (HttpStatus.SC_OK == response.getStatusLine().getStatusCode()) {
-                    SolrResult result = JSON_MAPPER.readValue(EntityUtils.toString(response.getEntity()), SolrResult.class);
-                    totalCount = result.getSearchResponse().getNumFound();
+          for (String header : accepted) {
+               for (String coding : header.split(",")) {
+                    String[] parts = coding.trim().split("\\s*;\\s*");
+                    if ("gzip".equalsIgnoreCase(parts[0]))
+                         return !(parts.length > 1 && parts[1].matches("q=0(\\.0*)?"));
                }
-          } catch (URISyntaxException ex) {
-               log.error("Error in getting solr count: " + ex.getMessage());
-          } catch (IOException ex) {
-               log.error("Error in getting solr count: " + ex.getMessage());
           }
-          return totalCount;
+          return false;
      }
 }
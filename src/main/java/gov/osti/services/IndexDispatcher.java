@@ -0,0 +1,290 @@
+package gov.osti.services;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import gov.osti.entity.DOECodeMetadata;
+import gov.osti.entity.IndexOutbox;
+import gov.osti.entity.MetadataSnapshot;
+import gov.osti.listeners.DoeServletContextListener;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Background sender of queued IndexOutbox updates to the search backend.
+ *
+ * Each pass picks up CODE IDs with entries that are due, and brings the index
+ * in line with their CURRENT state: records with an Approved Snapshot are
+ * (re)indexed in batches, all others are removed.  Because the state is read
+ * fresh each time, retries and duplicate entries are harmless.  Entries that
+ * fail are retried with exponential backoff; they are never dropped.
+ *
+ * A search backend that does not persist its index is populated from all
+ * Approved Snapshots once on start, ahead of any dispatching.
+ */
+public class IndexDispatcher {
+    // logger
+    private static final Logger log = LoggerFactory.getLogger(IndexDispatcher.class);
+
+    // CODE IDs handled per pass, and per index POST
+    private static final int MAX_CODE_IDS = 500;
+    private static final int BATCH_SIZE = 100;
+    // how often to look for due entries, in seconds
+    private static final long POLL_INTERVAL = 30;
+    // retry backoff bounds, in milliseconds
+    private static final long MIN_BACKOFF = TimeUnit.SECONDS.toMillis(5);
+    private static final long MAX_BACKOFF = TimeUnit.HOURS.toMillis(1);
+
+    // the dispatching thread, when running
+    private static ScheduledExecutorService executor = null;
+
+    /**
+     * Start dispatching on a background thread.
+     */
+    public static synchronized void start() {
+        if (null!=executor)
+            return;
+
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "index-dispatcher");
+            t.setDaemon(true);
+            return t;
+        });
+        if (!DoeServletContextListener.getSearchBackend().isPersistent())
+            executor.execute(IndexDispatcher::populate);
+        executor.scheduleWithFixedDelay(IndexDispatcher::dispatch, POLL_INTERVAL, POLL_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop dispatching.  Any remaining entries stay queued for next time.
+     */
+    public static synchronized void stop() {
+        if (null==executor)
+            return;
+
+        executor.shutdownNow();
+        executor = null;
+    }
+
+    /**
+     * Request a dispatch pass as soon as possible, e.g., after committing new
+     * outbox entries.  Does nothing if not started.
+     */
+    public static synchronized void wake() {
+        if (null!=executor)
+            executor.execute(IndexDispatcher::dispatch);
+    }
+
+    /**
+     * Index every Approved record, for a search backend starting out empty.
+     */
+    private static void populate() {
+        EntityManager em = DoeServletContextListener.createEntityManager();
+
+        try {
+            List<Long> codeIds = em.createNamedQuery("MetadataSnapshot.findCodeIdsByStatus", Long.class)
+                    .setParameter("status", DOECodeMetadata.Status.Approved)
+                    .getResultList();
+
+            Map<Long, String> failures = new HashMap<>();
+            for (int i = 0; i < codeIds.size() && !Thread.currentThread().isInterrupted(); i += BATCH_SIZE)
+                synchronize(em, codeIds.subList(i, Math.min(i + BATCH_SIZE, codeIds.size())), failures);
+
+            log.info("Search index populated with " + (codeIds.size() - failures.size()) + " records.");
+            if (!failures.isEmpty())
+                log.warn("Search index population: " + failures.size() + " records failed.");
+        } catch ( Exception e ) {
+            log.warn("Search index population error: " + e.getMessage());
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Dispatch all due entries.
+     */
+    private static void dispatch() {
+        try {
+            while (dispatchOnce() == MAX_CODE_IDS && !Thread.currentThread().isInterrupted())
+                ; // keep going while there may be more due
+        } catch ( Exception e ) {
+            // never let the scheduled task die
+            log.warn("Index dispatch error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handle up to MAX_CODE_IDS due CODE IDs.
+     *
+     * @return the number of CODE IDs handled
+     */
+    private static int dispatchOnce() {
+        EntityManager em = DoeServletContextListener.createEntityManager();
+
+        try {
+            List<Long> codeIds = em.createNamedQuery("IndexOutbox.findDueCodeIds", Long.class)
+                    .setParameter("now", new Date())
+                    .setMaxResults(MAX_CODE_IDS)
+                    .getResultList();
+
+            if (codeIds.isEmpty())
+                return 0;
+
+            // typeahead suggestions follow the same Snapshot state
+            SuggestIndex.refresh(codeIds);
+
+            // read the entries BEFORE the Snapshots, so any committed later are left for next time
+            List<IndexOutbox> entries = em.createNamedQuery("IndexOutbox.findByCodeIds", IndexOutbox.class)
+                    .setParameter("ids", codeIds)
+                    .getResultList();
+
+            // CODE IDs that could not be handled, with the reason
+            Map<Long, String> failures = new HashMap<>();
+
+            for (int i = 0; i < codeIds.size(); i += BATCH_SIZE)
+                synchronize(em, codeIds.subList(i, Math.min(i + BATCH_SIZE, codeIds.size())), failures);
+
+            // record the outcome
+            em.getTransaction().begin();
+            for ( IndexOutbox entry : recordOutcome(entries, failures, System.currentTimeMillis()) )
+                em.remove(entry);
+            em.getTransaction().commit();
+
+            if (!failures.isEmpty())
+                log.warn("Index dispatch: " + failures.size() + " of " + codeIds.size() + " records failed, will retry.");
+
+            return codeIds.size();
+        } finally {
+            if (em.getTransaction().isActive())
+                em.getTransaction().rollback();
+            em.close();
+        }
+    }
+
+    /**
+     * Record the outcome of a pass on its outbox entries: those for failed
+     * CODE IDs are rescheduled with the reason, the rest are done.
+     *
+     * @param entries the outbox entries handled
+     * @param failures the CODE IDs that failed, with the reason
+     * @param now the current time, in milliseconds
+     * @return the entries that are done, to be removed
+     */
+    static List<IndexOutbox> recordOutcome(List<IndexOutbox> entries, Map<Long, String> failures, long now) {
+        List<IndexOutbox> done = new ArrayList<>();
+
+        for ( IndexOutbox entry : entries ) {
+            String error = failures.get(entry.getCodeId());
+
+            if (null==error) {
+                done.add(entry);
+            } else {
+                int attempts = entry.getAttempts() + 1;
+
+                entry.setAttempts(attempts);
+                entry.setLastError(error);
+                entry.setNextAttempt(new Date(now + getBackoff(attempts)));
+            }
+        }
+
+        return done;
+    }
+
+    /**
+     * Get the delay before retrying after a number of failed attempts:
+     * doubling from MIN_BACKOFF, up to MAX_BACKOFF.
+     *
+     * @param attempts the number of failed attempts so far
+     * @return the delay, in milliseconds
+     */
+    static long getBackoff(int attempts) {
+        return Math.min(MAX_BACKOFF, MIN_BACKOFF << Math.max(0, Math.min(attempts - 1, 20)));
+    }
+
+    /**
+     * Bring the index in line with the current state of a batch of CODE IDs.
+     *
+     * @param em the EntityManager to use
+     * @param codeIds the CODE IDs to handle
+     * @param failures Map in which to record any CODE IDs that failed
+     */
+    private static void synchronize(EntityManager em, List<Long> codeIds, Map<Long, String> failures) {
+        List<MetadataSnapshot> snapshots = em.createNamedQuery("MetadataSnapshot.findByCodeIdsAndStatus", MetadataSnapshot.class)
+                .setParameter("ids", codeIds)
+                .setParameter("status", DOECodeMetadata.Status.Approved)
+                .getResultList();
+
+        // anything not Approved comes out of the index
+        Set<Long> approved = new HashSet<>();
+        List<DOECodeMetadata> records = new ArrayList<>();
+        List<String> dois = new ArrayList<>();
+        for ( MetadataSnapshot snapshot : snapshots ) {
+            Long codeId = snapshot.getSnapshotKey().getCodeId();
+            approved.add(codeId);
+
+            try {
+                DOECodeMetadata md = DOECodeMetadata.parseJson(new StringReader(snapshot.getJson()));
+
+                if (Metadata.isIndexable(md)) {
+                    records.add(md);
+                    dois.addAll(Metadata.getVersionDois(md));
+                }
+            } catch ( IOException e ) {
+                failures.put(codeId, "Unable to parse Snapshot JSON: " + e.getMessage());
+            }
+        }
+        List<Long> removals = new ArrayList<>(codeIds);
+        removals.removeAll(approved);
+
+        if (!records.isEmpty()) {
+            List<Long> indexed = new ArrayList<>();
+            String error = null;
+
+            try {
+                Map<String, Boolean> minted = Metadata.findMintedDois(em, dois);
+                ArrayNode documents = JsonNodeFactory.instance.arrayNode();
+
+                for ( DOECodeMetadata md : records ) {
+                    documents.add(Metadata.createIndexDocument(md, Metadata.createIndexableRi(md, minted)));
+                    indexed.add(md.getCodeId());
+                }
+
+                if (!Metadata.postToIndex(documents))
+                    error = "Indexing service rejected the batch.";
+            } catch ( IOException e ) {
+                error = "Indexing Error: " + e.getMessage();
+            }
+
+            if (null!=error)
+                for ( Long codeId : indexed )
+                    failures.put(codeId, error);
+        }
+
+        if (!removals.isEmpty()) {
+            String error = null;
+
+            try {
+                if (!Metadata.postIndexRemoval(removals))
+                    error = "Indexing service rejected the removal.";
+            } catch ( IOException e ) {
+                error = "Index Removal Error: " + e.getMessage();
+            }
+
+            if (null!=error)
+                for ( Long codeId : removals )
+                    failures.put(codeId, error);
+        }
+    }
+}
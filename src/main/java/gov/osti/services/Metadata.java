@@ -8,6 +8,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
 import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.ser.FilterProvider;
 import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
@@ -18,6 +19,7 @@ import gov.osti.connectors.ConnectorFactory;
 import gov.osti.connectors.BitBucket;
 import gov.osti.connectors.GitHub;
 import gov.osti.connectors.GitLab;
+import gov.osti.connectors.HttpClientRegistry;
 import gov.osti.connectors.HttpUtil;
 import gov.osti.connectors.SourceForge;
 import gov.osti.connectors.api.GitLabAPI;
@@ -29,7 +31,10 @@ import gov.osti.entity.Contributor;
 import gov.osti.entity.Award;
 import gov.osti.entity.ChangeLog;
 import gov.osti.entity.ContributingOrganization;
+import gov.osti.entity.IndexOutbox;
+import gov.osti.entity.IndexWatermark;
 import gov.osti.entity.MetadataSnapshot;
+import gov.osti.entity.MetadataSummary;
 import gov.osti.entity.MetadataSnapshotKey;
 import gov.osti.entity.OfficialUseOnly;
 import gov.osti.entity.DOECodeMetadata;
@@ -51,6 +56,8 @@ import gov.osti.entity.UserRole;
 import gov.osti.entity.UserRole.RoleType;
 import gov.osti.indexer.AgentSerializer;
 import gov.osti.listeners.DoeServletContextListener;
+import gov.osti.search.ResponseCache;
+import gov.osti.cache.EntityCaches;
 import java.io.File;
 import java.io.Serializable;
 import java.io.IOException;
@@ -68,6 +75,7 @@ import java.util.Set;
 import org.jsoup.Jsoup;
 import org.jsoup.safety.Safelist;
 
+import javax.persistence.EntityGraph;
 import javax.persistence.EntityManager;
 import javax.persistence.LockModeType;
 import javax.persistence.LockTimeoutException;
@@ -104,9 +112,8 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.mail.EmailException;
 import org.apache.commons.mail.HtmlEmail;
-import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
-import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.entity.ContentType;
@@ -116,7 +123,6 @@ import org.apache.http.entity.mime.MultipartEntityBuilder;
 import org.apache.http.entity.mime.content.FileBody;
 import org.apache.http.entity.mime.content.StringBody;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.util.EntityUtils;
 import org.apache.shiro.SecurityUtils;
 import org.apache.shiro.authz.annotation.RequiresAuthentication;
@@ -130,16 +136,31 @@ import org.slf4j.LoggerFactory;
 import gov.osti.connectors.gitlab.Project;
 import gov.osti.entity.RelatedIdentifier;
 import java.io.FileInputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Objects;
 import java.util.TimeZone;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import org.apache.commons.codec.binary.Base64InputStream;
 import static java.nio.file.StandardCopyOption.*;
+import static gov.osti.listeners.DoeServletContextListener.getIntProperty;
 
 /**
  * REST Web Service for Metadata.
@@ -175,10 +196,12 @@ public class Metadata {
     private static final String EMAIL_SUBMISSION = DoeServletContextListener.getConfigurationProperty("email.notification");
     // EMAIL address to send to for DELETE/HIDE/UNHIDE
     private static final String EMAIL_STATE_CHANGE = DoeServletContextListener.getConfigurationProperty("email.state.notification");
-    // URL to indexer services, if configured
-    private static String INDEX_URL = DoeServletContextListener.getConfigurationProperty("index.url");
-    // URL to indexer services, for removals, if configured
-    private static String INDEX_REMOVAL_URL = DoeServletContextListener.getConfigurationProperty("index.removal.url");
+    // reindex defaults: Snapshots read per page, records per index POST, and worker threads
+    private static final int REINDEX_PAGE_SIZE = 1000;
+    private static final int REINDEX_BATCH_SIZE = 100;
+    private static final int REINDEX_THREADS = 4;
+    // allowance for Snapshot transactions in progress when a reindex starts
+    private static final long REINDEX_WATERMARK_MARGIN = TimeUnit.MINUTES.toMillis(10);
     // SQL used to hide/unhide records in OSTI
     private static String OSTI_HIDE_SQL = DoeServletContextListener.getConfigurationProperty("osti.hide.sql");
     // SQL used to delete records from OSTI
@@ -260,6 +283,15 @@ public class Metadata {
             .setSerializationInclusion(JsonInclude.Include.NON_NULL)
             .addMixIn(Object.class, PropertyFilterMixIn.class)
             .setTimeZone(TimeZone.getDefault());
+    // project listing totals by visibility scope; via "listing.count.cache.size" and "listing.count.cache.ttl" (seconds)
+    private static final ResponseCache<String, Long> LISTING_COUNTS = new ResponseCache<>(
+            getIntProperty("listing.count.cache.size", 1000),
+            TimeUnit.SECONDS.toMillis(getIntProperty("listing.count.cache.ttl", 30)));
+    // JPA hint to load an entity graph along with the query results
+    private static final String LOAD_GRAPH = "javax.persistence.loadgraph";
+    // JPQL selecting the listed columns of a record "md"
+    private static final String SUMMARY_SELECT = "SELECT NEW gov.osti.entity.MetadataSummary(md.codeId, md.softwareTitle, "
+            + "md.workflowStatus, md.owner, md.siteOwnershipCode, md.doi, md.releaseDate, md.dateRecordAdded, md.dateRecordUpdated)";
     // ObjectMapper instance for metadata interchange
     private static final ObjectMapper mapper = new ObjectMapper()
             .setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE)
@@ -368,7 +400,8 @@ public class Metadata {
                     .badRequest("Missing code ID.")
                     .build();
 
-        DOECodeMetadata md = em.find(DOECodeMetadata.class, codeId);
+        DOECodeMetadata md = em.find(DOECodeMetadata.class, codeId,
+                Collections.singletonMap(LOAD_GRAPH, recordGraph(em, user.hasRole("RecordAdmin"))));
 
         // no metadata?  404
         if ( null==md )
@@ -429,34 +462,38 @@ public class Metadata {
 
     /**
      * Intended to be a List of retrieved Metadata records/projects.
+     *
+     * @param <T> the record type: DOECodeMetadata, or MetadataSummary
      */
-    private class RecordsList {
+    private class RecordsList<T> {
         // the records
-    	private List<DOECodeMetadata> records;
+    	private List<T> records;
         // a total count of a matched query
         private long total;
         // the starting index (0-based)
         private int start;
+        // continuation token for the next page, if there may be one
+        private String next;
 
-    	RecordsList(List<DOECodeMetadata> records) {
+    	RecordsList(List<T> records) {
     		this.records = records;
     	}
 
         /**
          * Acquire the list of records (a single page of results).
          *
-         * @return a List of DOECodeMetadata Objects
+         * @return a List of records
          */
-        public List<DOECodeMetadata> getRecords() {
+        public List<T> getRecords() {
                 return records;
         }
 
         /**
          * Set the current page of results.
          *
-         * @param records a List of DOECodeMetadata Objects for this page
+         * @param records a List of records for this page
          */
-        public void setRecords(List<DOECodeMetadata> records) {
+        public void setRecords(List<T> records) {
                 this.records = records;
         }
 
@@ -488,6 +525,21 @@ public class Metadata {
          */
         public int getStart() { return this.start; }
 
+        /**
+         * Set the token from which to continue to the next page.
+         *
+         * @param next the token, or null if this is the last page
+         */
+        public void setNext(String next) { this.next = next; }
+
+        /**
+         * Get the token from which to continue to the next page, as the
+         * "after" parameter.
+         *
+         * @return the token, or null if this is the last page
+         */
+        public String getNext() { return this.next; }
+
         /**
          * Get the number of rows on the current "page" of results.
          *
@@ -499,10 +551,97 @@ public class Metadata {
     }
 
     /**
-     * Acquire a listing of all records by OWNER.
+     * Whether or not a listing "fields" parameter asks for whole records.
+     *
+     * @param fields the requested fields: "summary" (the default) for the
+     * MetadataSummary columns only, or "full" for complete records
+     * @return true if complete records are wanted
+     */
+    private static boolean isFullListing(String fields) {
+        return "full".equalsIgnoreCase(StringUtils.trimToEmpty(fields));
+    }
+
+    /**
+     * Read the CODE ID from which a listing continues.
+     *
+     * @param after the "next" token of the previous page, if any
+     * @return the last CODE ID of the previous page, or null to start at the
+     * beginning
+     * @throws IllegalArgumentException if the token is not valid
+     */
+    private static Long parseCodeIdToken(String after) {
+        PageToken token = PageToken.decode(after, 1);
+        return (null==token) ? null : token.getLong(0);
+    }
+
+    /**
+     * Discard cached project listing totals, after records are added,
+     * removed, or change hands.
+     */
+    private static void listingsChanged() {
+        LISTING_COUNTS.invalidateAll();
+    }
+
+    /**
+     * Count the records visible in a project listing, caching the total
+     * briefly for the same visibility scope.
+     *
+     * @param em the EntityManager to use
+     * @param where the JPQL conditions on "md" limiting the listing, if any
+     * @param owner the owner email, or null if not limited by owner
+     * @param sites the site codes visible, or null if not limited by site
+     * @return the number of records in the listing
+     */
+    private static long countListing(EntityManager em, List<String> where, String owner, List<String> sites) {
+        String scope = (null==owner) ? "*" : owner + "|" + ((null==sites) ? "" : String.join(",", new TreeSet<>(sites)));
+
+        Long total = LISTING_COUNTS.get(scope);
+        if (null!=total)
+            return total;
+
+        TypedQuery<Long> count = em.createQuery("SELECT COUNT(md) FROM DOECodeMetadata md"
+                + (where.isEmpty() ? "" : " WHERE " + String.join(" AND ", where)), Long.class);
+        if (null!=owner)
+            count.setParameter("owner", owner);
+        if (null!=sites)
+            count.setParameter("site", sites);
+
+        total = count.getSingleResult();
+        LISTING_COUNTS.put(scope, total);
+        return total;
+    }
+
+    /**
+     * Construct the token continuing a listing after a page of records,
+     * ordered by CODE ID.
+     *
+     * @param page the page of records, DOECodeMetadata or MetadataSummary
+     * @param rows the number of rows requested; 0 is unlimited
+     * @return the token, or null if the page is the last
+     */
+    private static String nextPageToken(List<?> page, int rows) {
+        if (0==rows || page.size() < rows)
+            return null;
+
+        Object last = page.get(page.size() - 1);
+        return PageToken.encode((last instanceof MetadataSummary) ?
+                ((MetadataSummary) last).getCodeId() :
+                ((DOECodeMetadata) last).getCodeId());
+    }
+
+    /**
+     * Acquire a listing of all records by OWNER, in CODE ID order.
+     *
+     * Records are summarized by default (see MetadataSummary); request
+     * "fields=full" for complete records.  Each full page carries a "next"
+     * token; pass it as "after" to continue from there, at the same cost
+     * however deep the page.  The "total" is the number of records visible
+     * to the user in all, whatever the page.
      *
      * @param rows the number of rows desired (if present)
-     * @param start the starting row number (from 0)
+     * @param start the starting row number (from 0); ignored if "after" given
+     * @param after (optional) the "next" token of the previous page
+     * @param fields (optional) "summary" (default) or "full"
      * @return the Metadata information in the desired format
      * @throws JsonProcessingException
      */
@@ -512,7 +651,9 @@ public class Metadata {
     @RequiresAuthentication
     public Response listProjects(
             @QueryParam("rows") int rows,
-            @QueryParam("start") int start)
+            @QueryParam("start") int start,
+            @QueryParam("after") String after,
+            @QueryParam("fields") String fields)
             throws JsonProcessingException {
         EntityManager em = DoeServletContextListener.createEntityManager();
 
@@ -526,22 +667,52 @@ public class Metadata {
             List<String> allowedSites = UserRole.GetRoleList(RoleType.STANDARD);
             allowedSites.retainAll(roles);
 
-            TypedQuery<DOECodeMetadata> query;
+            // the last CODE ID of the previous page, if continuing
+            Long afterCodeId;
+            try {
+                afterCodeId = parseCodeIdToken(after);
+            } catch ( IllegalArgumentException e ) {
+                return ErrorResponse
+                        .badRequest(e.getMessage())
+                        .build();
+            }
+
+            List<String> where = new ArrayList<>();
             boolean isRecordAdmin = false;
             // admins see ALL PROJECTS
             if (roles.contains("RecordAdmin")) {
-                query = em.createQuery("SELECT md FROM DOECodeMetadata md", DOECodeMetadata.class);
                 isRecordAdmin = true;
             } else if (!allowedSites.isEmpty()) {
                 // if you have any allowed site ROLE, it is assumed to be a SITE ADMIN; see all those records plus their own
-                query = em.createQuery("SELECT md FROM DOECodeMetadata md WHERE md.owner = :owner OR md.siteOwnershipCode IN :site", DOECodeMetadata.class)
-                        .setParameter("owner", user.getEmail())
-                        .setParameter("site", allowedSites);
+                where.add("(md.owner = :owner OR md.siteOwnershipCode IN :site)");
             } else {
                 // no roles, you see only YOUR OWN projects
-                query = em.createQuery("SELECT md FROM DOECodeMetadata md WHERE md.owner = :owner", DOECodeMetadata.class)
-                        .setParameter("owner", user.getEmail());
+                where.add("md.owner = :owner");
             }
+            // count everything visible, before limiting to this page
+            long total = countListing(em, where,
+                    isRecordAdmin ? null : user.getEmail(),
+                    (isRecordAdmin || allowedSites.isEmpty()) ? null : allowedSites);
+
+            // continue after the previous page, if any
+            if (null!=afterCodeId)
+                where.add("md.codeId > :after");
+            String from = " FROM DOECodeMetadata md"
+                    + (where.isEmpty() ? "" : " WHERE " + String.join(" AND ", where))
+                    + " ORDER BY md.codeId";
+
+            // whole records only if asked for; otherwise just the listed columns
+            boolean full = isFullListing(fields);
+            TypedQuery<?> query = full ?
+                    em.createQuery("SELECT md" + from, DOECodeMetadata.class)
+                            .setHint(LOAD_GRAPH, recordGraph(em, isRecordAdmin)) :
+                    em.createQuery(SUMMARY_SELECT + from, MetadataSummary.class);
+            if (!isRecordAdmin)
+                query.setParameter("owner", user.getEmail());
+            if (!isRecordAdmin && !allowedSites.isEmpty())
+                query.setParameter("site", allowedSites);
+            if (null!=afterCodeId)
+                query.setParameter("after", afterCodeId);
 
             // if rows specified, and greater than 100, cap it there
             rows = (rows>100) ? 100 : rows;
@@ -549,49 +720,43 @@ public class Metadata {
             // if pagination elements are present, set them on the query
             if (0!=rows)
                 query.setMaxResults(rows);
-            if (0!=start)
+            if (0!=start && null==afterCodeId)
                 query.setFirstResult(start);
 
             // get a List of records
-            RecordsList records = new RecordsList(query.getResultList());
-            records.setStart(start);
+            List<?> page = query.getResultList();
+            // only record administrators see the change log; don't load it for anyone else
+            if (full && !isRecordAdmin)
+                for ( Object record : page )
+                    ((DOECodeMetadata) record).setChangeLog(null);
+            RecordsList<?> records = new RecordsList<>(page);
+            records.setStart((null==afterCodeId) ? start : 0);
+            records.setNext(nextPageToken(page, rows));
+            records.setTotal(total);
             ObjectNode recordsObject = mapper.valueToTree(records);
 
-            // lookup previous Snapshot status info for each item
-            TypedQuery<MetadataSnapshot> querySnapshot = em.createNamedQuery("MetadataSnapshot.findByCodeIdLastNotStatus", MetadataSnapshot.class)
-                    .setParameter("status", DOECodeMetadata.Status.Approved);
-
-            // lookup system Snapshot status info for each item
-            TypedQuery<MetadataSnapshot> querySystemSnapshot = em.createNamedQuery("MetadataSnapshot.findByCodeIdAsSystemStatus", MetadataSnapshot.class)
-                    .setParameter("status", DOECodeMetadata.Status.Approved);
-
             JsonNode recordNode = recordsObject.get("records");
 
             if (recordNode.isArray()) {
-                int rowCount = 0;
-                for (JsonNode objNode : recordNode) {
-                    rowCount++;
+                // lookup previous and system Snapshot status info for the whole page at once
+                List<Long> codeIds = new ArrayList<>();
+                for (JsonNode objNode : recordNode)
+                    codeIds.add(objNode.get("code_id").asLong());
+
+                Map<Long, String> lastApprovals = findSnapshotStatuses(em, "MetadataSnapshot.findLastNotStatusByCodeIds", codeIds);
+                Map<Long, String> systemStatuses = findSnapshotStatuses(em, "MetadataSnapshot.findSystemStatusByCodeIds", codeIds);
 
-                    // get code_id to find Snapshot
+                for (JsonNode objNode : recordNode) {
+                    // get code_id to find Snapshot status
                     long codeId = objNode.get("code_id").asLong();
-                    querySnapshot.setParameter("codeId", codeId);
-                    querySystemSnapshot.setParameter("codeId", codeId);
 
-                    String lastApprovalFor = "";
-                    List<MetadataSnapshot> results = querySnapshot.setMaxResults(1).getResultList();
-                    for ( MetadataSnapshot ms : results ) {
-                        lastApprovalFor = ms.getSnapshotKey().getSnapshotStatus().toString();
-                    }
+                    String lastApprovalFor = lastApprovals.getOrDefault(codeId, "");
 
                     // add "approve as" status indicator to response record, if not blank
                     if (!StringUtils.isBlank(lastApprovalFor))
                         ((ObjectNode) objNode).put("approved_as", lastApprovalFor);
 
-                    String systemStatus = "";
-                    List<MetadataSnapshot> resultsSystem = querySystemSnapshot.setMaxResults(1).getResultList();
-                    for ( MetadataSnapshot ms : resultsSystem ) {
-                        systemStatus = ms.getSnapshotKey().getSnapshotStatus().toString();
-                    }
+                    String systemStatus = systemStatuses.getOrDefault(codeId, "");
 
                     // add "system status" indicator to response record, if not blank
                     if (!StringUtils.isBlank(lastApprovalFor))
@@ -600,8 +765,6 @@ public class Metadata {
                     if (!isRecordAdmin)
                         ((ObjectNode) objNode).remove("change_log");
                 }
-
-                recordsObject.put("total", rowCount);
             }
 
                 return Response
@@ -613,6 +776,48 @@ public class Metadata {
         }
     }
 
+    /**
+     * Obtain the entity graph of a DOECodeMetadata to load up front.  Its
+     * collections are batch fetched, so a page of records is read in one
+     * query per collection regardless of the number of rows.
+     *
+     * @param em the EntityManager to use
+     * @param withChangeLog whether or not to include the change log
+     * @return the "DOECodeMetadata.full" graph if including the change log,
+     * otherwise "DOECodeMetadata.record"
+     */
+    private static EntityGraph<?> recordGraph(EntityManager em, boolean withChangeLog) {
+        return em.getEntityGraph(withChangeLog ? "DOECodeMetadata.full" : "DOECodeMetadata.record");
+    }
+
+    /**
+     * Look up a Snapshot status for each of a set of CODE IDs using one of the
+     * batched status named queries.  Each query returns (codeId, status) rows
+     * ordered by codeId, with the preferred status for each codeId first.
+     *
+     * @param em the EntityManager to use
+     * @param queryName the named query; one of "MetadataSnapshot.findLastNotStatusByCodeIds"
+     * or "MetadataSnapshot.findSystemStatusByCodeIds"
+     * @param codeIds the CODE IDs to look up
+     * @return a Map of CODE ID to status name; CODE IDs without any status are absent
+     */
+    private static Map<Long, String> findSnapshotStatuses(EntityManager em, String queryName, List<Long> codeIds) {
+        Map<Long, String> statuses = new HashMap<>();
+
+        // keep IN lists to a reasonable size
+        for (int i = 0; i < codeIds.size(); i += 1000) {
+            List<Object[]> results = em.createNamedQuery(queryName, Object[].class)
+                    .setParameter("ids", codeIds.subList(i, Math.min(i + 1000, codeIds.size())))
+                    .setParameter("status", DOECodeMetadata.Status.Approved)
+                    .getResultList();
+
+            for ( Object[] row : results )
+                statuses.putIfAbsent((Long) row[0], row[1].toString());
+        }
+
+        return statuses;
+    }
+
     /**
      * Acquire a List of records in pending ("Submitted") state, to be approved
      * for indexing and searching.
@@ -622,9 +827,12 @@ public class Metadata {
      * {"records":[{"code_id":n, ...} ],
      *  "start":0, "rows":20, "total":100}
      *
-     * Where records is an array of DOECodeMetadata JSON, start is the beginning
-     * row number, rows is the number requested (or total if less available),
-     * and total is the total number of rows matching the filter.
+     * Where records is an array of MetadataSummary JSON (or of DOECodeMetadata
+     * JSON if "fields=full"), start is the beginning row number, rows is the
+     * number requested (or total if less available), and total is the total
+     * number of rows matching the filter.  Records are in CODE ID order; a
+     * full page also carries a "next" token, to pass as "after" for the
+     * following page.
      *
      * Return Codes:
      * 200 - OK, JSON is returned as above
@@ -632,11 +840,13 @@ public class Metadata {
      * 403 - Forbidden, insufficient privileges (role required)
      * 500 - unexpected error
      *
-     * @param start the starting row number (from 0)
+     * @param start the starting row number (from 0); ignored if "after" given
+     * @param after (optional) the "next" token of the previous page
      * @param rows number of rows desired (0 is unlimited)
      * @param siteCode (optional) a SITE OWNERSHIP CODE to filter by site
      * @param state the WORKFLOW STATE if desired (default Submitted and Announced). One of
      * Approved, Saved, Submitted, or Announced, if supplied.
+     * @param fields (optional) "summary" (default) or "full"
      * @return JSON of a records response
      */
     @GET
@@ -646,9 +856,21 @@ public class Metadata {
     @RequiresAuthentication
     @RequiresRoles("ApprovalAdmin")
     public Response listProjectsPending(@QueryParam("start") int start,
+                                        @QueryParam("after") String after,
                                         @QueryParam("rows") int rows,
                                         @QueryParam("site") String siteCode,
-                                        @QueryParam("state") String state) {
+                                        @QueryParam("state") String state,
+                                        @QueryParam("fields") String fields) {
+        // the last CODE ID of the previous page, if continuing
+        Long afterCodeId;
+        try {
+            afterCodeId = parseCodeIdToken(after);
+        } catch ( IllegalArgumentException e ) {
+            return ErrorResponse
+                    .badRequest(e.getMessage())
+                    .build();
+        }
+
         EntityManager em = DoeServletContextListener.createEntityManager();
 
         try {
@@ -704,28 +926,46 @@ public class Metadata {
             // rows count should be less than 100 for pagination; 0 is a special case
             rows = (rows>100) ? 100 : rows;
 
-            // create a CriteriaQuery for the ROWS
-            CriteriaQuery<DOECodeMetadata> rowQuery = cb.createQuery(DOECodeMetadata.class);
-            rowQuery.select(md);
+            // create a CriteriaQuery for the ROWS: whole records only if asked for
+            boolean full = isFullListing(fields);
+            CriteriaQuery<?> rowQuery;
+            if (full) {
+                rowQuery = cb.createQuery(DOECodeMetadata.class).select(md);
+            } else {
+                rowQuery = cb.createQuery(MetadataSummary.class).select(cb.construct(MetadataSummary.class,
+                        md.get("codeId"), md.get("softwareTitle"), workflowStatus, md.get("owner"),
+                        siteOwnershipCode, md.get("doi"), md.get("releaseDate"),
+                        md.get("dateRecordAdded"), md.get("dateRecordUpdated")));
+            }
+
+            // continue after the previous page, if any
+            Expression<Long> codeId = md.get("codeId");
+            Predicate rowPredicate = (null==afterCodeId) ? statusPredicate : cb.and(statusPredicate, cb.greaterThan(codeId, afterCodeId));
 
             if (null==siteCode) {
-                rowQuery.where(statusPredicate);
+                rowQuery.where(rowPredicate);
             } else {
                 rowQuery.where(cb.and(
-                        statusPredicate,
+                        rowPredicate,
                         cb.equal(siteOwnershipCode, site)));
             }
+            rowQuery.orderBy(cb.asc(codeId));
 
-            TypedQuery<DOECodeMetadata> rq = em.createQuery(rowQuery);
+            TypedQuery<?> rq = em.createQuery(rowQuery);
             rq.setParameter("status", requestedStates);
             if (null!=siteCode)
                 rq.setParameter("site", siteCode);
-            rq.setFirstResult(start);
+            if (null==afterCodeId)
+                rq.setFirstResult(start);
             if (0!=rows) rq.setMaxResults(rows);
+            if (full)
+                rq.setHint(LOAD_GRAPH, recordGraph(em, true));
 
-            RecordsList records = new RecordsList(rq.getResultList());
+            List<?> page = rq.getResultList();
+            RecordsList<?> records = new RecordsList<>(page);
             records.setTotal(rowCount);
-            records.setStart(start);
+            records.setStart((null==afterCodeId) ? start : 0);
+            records.setNext(nextPageToken(page, rows));
 
             return Response
                     .ok()
@@ -1072,17 +1312,8 @@ public class Metadata {
         if (StringUtils.isBlank(repositoryLink) && null==archiveFile && null==archiveContainer)
             return;
 
-        // set up a connection
-        CloseableHttpClient hc =
-                HttpClientBuilder
-                .create()
-                .setDefaultRequestConfig(RequestConfig
-                        .custom()
-                        .setSocketTimeout(300000)
-                        .setConnectTimeout(300000)
-                        .setConnectionRequestTimeout(300000)
-                        .build())
-                .build();
+        // use the shared archiver connection pool
+        CloseableHttpClient hc = DoeServletContextListener.getHttpClient(HttpClientRegistry.Downstream.ARCHIVER);
 
         try {
             HttpPost post = new HttpPost(ARCHIVER_URL);
@@ -1115,22 +1346,17 @@ public class Metadata {
 
                 post.setEntity(mpe.build());
             }
-            HttpResponse response = hc.execute(post);
-
-            int statusCode = response.getStatusLine().getStatusCode();
+            try (CloseableHttpResponse response = hc.execute(post)) {
+                int statusCode = response.getStatusLine().getStatusCode();
 
-            if (HttpStatus.SC_OK!=statusCode && HttpStatus.SC_CREATED!=statusCode) {
-                throw new IOException ("Archiver Error: " + EntityUtils.toString(response.getEntity()));
+                if (HttpStatus.SC_OK!=statusCode && HttpStatus.SC_CREATED!=statusCode) {
+                    throw new IOException ("Archiver Error: " + EntityUtils.toString(response.getEntity()));
+                }
+                EntityUtils.consume(response.getEntity());
             }
         } catch ( IOException e ) {
             log.warn("Archiver request error: " + e.getMessage());
             throw e;
-        } finally {
-            try {
-                if (null!=hc) hc.close();
-            } catch ( IOException e ) {
-                log.warn("Close Error: " + e.getMessage());
-            }
         }
     }
 
@@ -1143,37 +1369,23 @@ public class Metadata {
      * @throws IOException on IO transmission errors
      */
     private static void removeFromArchiver(Long codeId, String lastEditor) throws IOException {
-        // set up a connection
-        CloseableHttpClient hc =
-                HttpClientBuilder
-                .create()
-                .setDefaultRequestConfig(RequestConfig
-                        .custom()
-                        .setSocketTimeout(300000)
-                        .setConnectTimeout(300000)
-                        .setConnectionRequestTimeout(300000)
-                        .build())
-                .build();
+        // use the shared archiver connection pool
+        CloseableHttpClient hc = DoeServletContextListener.getHttpClient(HttpClientRegistry.Downstream.ARCHIVER);
 
         try {
             HttpDelete del = new HttpDelete(ARCHIVER_URL + "/code_id/" + codeId + "?user=" + URLEncoder.encode(lastEditor, "UTF-8"));
 
-            HttpResponse response = hc.execute(del);
+            try (CloseableHttpResponse response = hc.execute(del)) {
+                int statusCode = response.getStatusLine().getStatusCode();
 
-            int statusCode = response.getStatusLine().getStatusCode();
-
-            if (HttpStatus.SC_OK!=statusCode && HttpStatus.SC_CREATED!=statusCode) {
-                throw new IOException ("Archiver Delete Error: " + EntityUtils.toString(response.getEntity()));
+                if (HttpStatus.SC_OK!=statusCode && HttpStatus.SC_CREATED!=statusCode) {
+                    throw new IOException ("Archiver Delete Error: " + EntityUtils.toString(response.getEntity()));
+                }
+                EntityUtils.consume(response.getEntity());
             }
         } catch ( IOException e ) {
             log.warn("Archiver Delete request error: " + e.getMessage());
             throw e;
-        } finally {
-            try {
-                if (null!=hc) hc.close();
-            } catch ( IOException e ) {
-                log.warn("Close Error: " + e.getMessage());
-            }
         }
     }
 
@@ -1234,9 +1446,61 @@ public class Metadata {
      * @return Updated and detached List<RelatedIdentifier> object.
      */
     private static List<RelatedIdentifier> createIndexableRi(EntityManager em, DOECodeMetadata md) throws IOException {
-        TypedQuery<MetadataSnapshot> querySnapshot = em.createNamedQuery("MetadataSnapshot.findByDoiAndStatus", MetadataSnapshot.class)
-                .setParameter("status", DOECodeMetadata.Status.Approved);
+        return createIndexableRi(md, findMintedDois(em, getVersionDois(md)));
+    }
 
+    /**
+     * Get the DOI values of New/Previous version RI in the metadata.
+     *
+     * @param md the Metadata to evaluate.
+     * @return a List of the version RI DOI values, if any
+     */
+    static List<String> getVersionDois(DOECodeMetadata md) {
+        return md.getRelatedIdentifiers()
+                .stream()
+                .filter(p -> p.getIdentifierType() == RelatedIdentifier.Type.DOI
+                    && (p.getRelationType() == RelatedIdentifier.RelationType.IsNewVersionOf
+                    || p.getRelationType() == RelatedIdentifier.RelationType.IsPreviousVersionOf))
+                .map(RelatedIdentifier::getIdentifierValue)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Determine, for each of a set of DOI values, whether any Approved Snapshot
+     * carries it and whether any of those has a minted DOI.
+     *
+     * @param em the EntityManager to use.
+     * @param dois the DOI values to look up.
+     * @return a Map of DOI to minted flag; DOIs on no Approved Snapshot are absent
+     */
+    static Map<String, Boolean> findMintedDois(EntityManager em, Collection<String> dois) {
+        Map<String, Boolean> minted = new HashMap<>();
+        List<String> doiList = new ArrayList<>(new HashSet<>(dois));
+
+        // keep IN lists to a reasonable size
+        for (int i = 0; i < doiList.size(); i += 1000) {
+            List<Object[]> results = em.createNamedQuery("MetadataSnapshot.findMintedByDoisAndStatus", Object[].class)
+                    .setParameter("dois", doiList.subList(i, Math.min(i + 1000, doiList.size())))
+                    .setParameter("status", DOECodeMetadata.Status.Approved)
+                    .getResultList();
+
+            for ( Object[] row : results )
+                minted.merge((String) row[0], (Boolean) row[1], Boolean::logicalOr);
+        }
+
+        return minted;
+    }
+
+    /**
+     * Remove non-indexable New/Previous RI from metadata, given the minted
+     * status of Approved DOI values as obtained from findMintedDois().
+     *
+     * @param md the Metadata to evaluate.
+     * @param minted Map of DOI to minted flag for Approved Snapshots
+     * @return Updated and detached List<RelatedIdentifier> object.
+     */
+    static List<RelatedIdentifier> createIndexableRi(DOECodeMetadata md, Map<String, Boolean> minted) {
         // get detached list of RI to check
         List<RelatedIdentifier> riList = new ArrayList<>();
         riList.addAll(md.getRelatedIdentifiers());
@@ -1251,21 +1515,10 @@ public class Metadata {
         List<RelatedIdentifier> removalList = new ArrayList<>();
 
         for ( RelatedIdentifier ri : filteredRiList ) {
-            // lookup by Snapshot by current DOI
-            querySnapshot.setParameter("doi", ri.getIdentifierValue());
+            // if no Snapshot has this DOI, keep, otherwise remove unless there is a minted version found
+            Boolean isMinted = minted.get(ri.getIdentifierValue());
 
-            List<MetadataSnapshot> results = querySnapshot.getResultList();
-
-            // if no results, keep, otherwise remove unless there is a minted version found
-            boolean remove = !results.isEmpty();
-            for ( MetadataSnapshot ms : results ) {
-                    if (ms.getDoiIsMinted()) {
-                        remove = false;
-                        break;
-                    }
-            }
-
-            if (remove)
+            if (null!=isMinted && !isMinted)
                 removalList.add(ri);
         }
 
@@ -1528,130 +1781,98 @@ public class Metadata {
         }
 
         // update Index, as needed
-        for (Map.Entry<Long, DOECodeMetadata> entry : backfillSendToIndex.entrySet()) {
-            sendToIndex(em, entry.getValue());
+        for (Long codeId : backfillSendToIndex.keySet()) {
+            queueIndexUpdate(em, codeId);
         }
     }
 
     /**
-     * Attempt to send this Metadata information to the indexing service configured.
-     * If no service is configured, do nothing.
+     * Queue an update of the search index for this CODE ID, to be sent by the
+     * IndexDispatcher once the current transaction commits.  If indexing is not
+     * configured, do nothing.
      *
-     * @param em the related EntityManager
-     * @param md the Metadata to send
+     * @param em the EntityManager with the active transaction
+     * @param codeId the CODE ID whose Approved Snapshot changed
      */
-    private static void sendToIndex(EntityManager em, DOECodeMetadata md) {
+    private static void queueIndexUpdate(EntityManager em, Long codeId) {
         // if indexing is not configured, skip this step
-        if ("".equals(INDEX_URL))
+        if (!DoeServletContextListener.getSearchBackend().isIndexable())
             return;
 
-        List<String> accessLims = md.getAccessLimitations();
-        if (accessLims != null && accessLims.contains("OUO"))
-            return;
+        em.persist(new IndexOutbox(codeId));
+    }
 
-        // set some reasonable default timeouts
-        RequestConfig rc = RequestConfig
-                .custom()
-                .setSocketTimeout(60000)
-                .setConnectTimeout(60000)
-                .setConnectionRequestTimeout(60000)
-                .build();
-        // create an HTTP client to request through
-        CloseableHttpClient hc =
-                HttpClientBuilder
-                .create()
-                .setDefaultRequestConfig(rc)
-                .build();
+    /**
+     * Determine whether or not this Metadata may be sent to the index.
+     *
+     * @param md the Metadata to check
+     * @return false if the record is OUO, true otherwise
+     */
+    static boolean isIndexable(DOECodeMetadata md) {
+        List<String> accessLims = md.getAccessLimitations();
+        return !(accessLims != null && accessLims.contains("OUO"));
+    }
 
+    /**
+     * Construct the indexing service document for this Metadata.
+     *
+     * @param md the Metadata to index
+     * @param indexableRi the related identifiers to index in place of those
+     * on the Metadata
+     * @return the JSON document to send to the index
+     */
+    static ObjectNode createIndexDocument(DOECodeMetadata md, List<RelatedIdentifier> indexableRi) {
         // backup info
         List<RelatedIdentifier> originalRi = md.getRelatedIdentifiers();
 
         try {
-            // do not index DOE CODE New/Previous DOI related identifiers if Approved without a Release Date
-            List<RelatedIdentifier> indexableRi = createIndexableRi(em, md);
             md.setRelatedIdentifiers(indexableRi);
 
-            // construct a POST submission to the indexer service
-            HttpPost post = new HttpPost(INDEX_URL);
-            post.setHeader("Content-Type", "application/json");
-            post.setHeader("Accept", "application/json");
             // add JSON String to index for later display/search
             ObjectNode node = (ObjectNode)index_mapper.valueToTree(md);
             node.put("json", md.toJson().toString());
-            post.setEntity(new StringEntity(node.toString(), "UTF-8"));
 
-            HttpResponse response = hc.execute(post);
-
-            if ( HttpStatus.SC_OK!=response.getStatusLine().getStatusCode() ) {
-                log.warn("Indexing Error occurred for ID=" + md.getCodeId());
-                log.warn("Message: " + EntityUtils.toString(response.getEntity()));
-            }
-        } catch ( IOException e ) {
-            log.warn("Indexing Error: " + e.getMessage() + " ID=" + md.getCodeId());
+            return node;
         } finally {
-            try {
-                if (null!=hc) hc.close();
-            } catch ( IOException e ) {
-                log.warn("Index Close Error: " + e.getMessage());
-            }
-
             // restore manipulated lists from backup info
             md.setRelatedIdentifiers(originalRi);
         }
     }
 
     /**
-     * Attempt to remove this Metadata information from the indexing service configured.
-     * If no service is configured, do nothing.
+     * Send one document, or a JSON array of documents, to the search index.
      *
-     * @param codeId the CODE ID to remove from index
+     * @param documents the JSON document(s) to index
+     * @return true if the search index accepted the document(s)
+     * @throws IOException on communication errors
      */
-    private static void removeFromIndex(Long codeId) {
-        // if indexing is not configured, skip this step
-        if ("".equals(INDEX_REMOVAL_URL))
-            return;
-
-        // set some reasonable default timeouts
-        RequestConfig rc = RequestConfig
-                .custom()
-                .setSocketTimeout(60000)
-                .setConnectTimeout(60000)
-                .setConnectionRequestTimeout(60000)
-                .build();
-        // create an HTTP client to request through
-        CloseableHttpClient hc =
-                HttpClientBuilder
-                .create()
-                .setDefaultRequestConfig(rc)
-                .build();
+    static boolean postToIndex(JsonNode documents) throws IOException {
+        // the CODE IDs being indexed
+        List<Long> codeIds = new ArrayList<>();
+        for ( JsonNode document : documents.isArray() ? documents : mapper.createArrayNode().add(documents) )
+            codeIds.add(document.path("codeId").asLong());
 
         try {
-            // construct a POST submission to the indexer service
-            HttpPost post = new HttpPost(INDEX_REMOVAL_URL);
-            post.setHeader("Content-Type", "application/json");
-            post.setHeader("Accept", "application/json");
-            // create JSON delete command
-            ObjectNode deleteNode = mapper.createObjectNode();
-            ObjectNode queryNode = mapper.createObjectNode();
-            queryNode.put("query", "codeId:" + codeId);
-            deleteNode.put("delete", queryNode);
-            
-            post.setEntity(new StringEntity(deleteNode.toString(), "UTF-8"));
-
-            HttpResponse response = hc.execute(post);
+            return DoeServletContextListener.getSearchBackend().index(documents);
+        } finally {
+            // cached search responses may now be out of date
+            SearchService.indexChanged(codeIds);
+        }
+    }
 
-            if ( HttpStatus.SC_OK!=response.getStatusLine().getStatusCode() ) {
-                log.warn("Index Removal Error occurred for ID=" + codeId);
-                log.warn("Message: " + EntityUtils.toString(response.getEntity()));
-            }
-        } catch ( IOException e ) {
-            log.warn("Index Removal Error: " + e.getMessage() + " ID=" + codeId);
+    /**
+     * Remove a number of CODE IDs from the search index.
+     *
+     * @param codeIds the CODE IDs to remove from index
+     * @return true if the search index accepted the removal
+     * @throws IOException on communication errors
+     */
+    static boolean postIndexRemoval(List<Long> codeIds) throws IOException {
+        try {
+            return DoeServletContextListener.getSearchBackend().remove(codeIds);
         } finally {
-            try {
-                if (null!=hc) hc.close();
-            } catch ( IOException e ) {
-                log.warn("Index Removal Close Error: " + e.getMessage());
-            }
+            // cached search responses may now be out of date
+            SearchService.indexChanged(codeIds);
         }
     }
 
@@ -1732,6 +1953,8 @@ public class Metadata {
             // we're done here
             em.getTransaction().commit();
 
+            listingsChanged();
+
             // provide check to prevent change log showing to non-admins.
             if (!user.hasRole("RecordAdmin"))
                 md.setChangeLog(null);
@@ -1933,6 +2156,8 @@ public class Metadata {
             // commit it
             em.getTransaction().commit();
 
+            listingsChanged();
+
             // send NOTIFICATION if configured to do so
             sendStatusNotification(md);
 
@@ -2123,6 +2348,8 @@ public class Metadata {
             // if we make it this far, go ahead and commit the transaction
             em.getTransaction().commit();
 
+            listingsChanged();
+
             // send NOTIFICATION if configured
             sendStatusNotification(md);
 
@@ -2307,44 +2534,268 @@ public class Metadata {
         return doSave(metadata, file, fileInfo, container, containerInfo);
     }
 
+    /**
+     * Re-send Approved records to the indexing service.
+     *
+     * Snapshots are read a page at a time; each page has its related
+     * identifier lookups done in bulk, and is posted to the index in batches
+     * by a number of worker threads.  If the workers fall behind, reading
+     * pauses until they catch up.
+     *
+     * By default, ALL Approved records are sent.  If "since" is supplied, only
+     * Snapshots updated after that time are sent; "since=last" uses the
+     * high-water mark stored by the previous successful reindex.  Each
+     * reindex without failures advances that mark to the latest Snapshot
+     * update time it sent, but no later than a margin before the reindex
+     * began, so Snapshots stamped earlier but committed during the reindex
+     * are picked up by the next one.
+     *
+     * JSON response is of the form:
+     *
+     * {"indexed":"n", "failed":n, "batches":n, "elapsed_ms":n, "records_per_second":n.n,
+     *  "since":"2018-01-01T00:00:00Z", "watermark":"2018-02-01T12:00:00Z"}
+     *
+     * Where indexed is the number of records sent successfully, failed is
+     * the number in batches rejected by the indexing service, since is the
+     * starting point used (if any) and watermark is the stored high-water mark.
+     *
+     * @param batchSize (optional) the number of records per POST (default 100)
+     * @param threads (optional) the number of worker threads (default 4)
+     * @param since (optional) "last", or an ISO-8601 date or date-time; only
+     * Snapshots updated after this are sent
+     * @return a Response containing the reindex statistics
+     * @throws IOException on Snapshot JSON parsing errors
+     */
     @GET
     @Produces (MediaType.APPLICATION_JSON)
     @Path ("/reindex")
     @RequiresAuthentication
     @RequiresRoles ("ContentAdmin")
-    public Response reindex() throws IOException {
+    public Response reindex(@QueryParam("batch") int batchSize,
+                            @QueryParam("threads") int threads,
+                            @QueryParam("since") String since) throws IOException {
+        // if indexing is not configured, skip this step
+        if (!DoeServletContextListener.getSearchBackend().isIndexable())
+            return Response
+                    .ok()
+                    .entity(mapper.createObjectNode().put("indexed", "0").toString())
+                    .build();
+
+        batchSize = (batchSize<=0) ? REINDEX_BATCH_SIZE : Math.min(batchSize, 1000);
+        threads = (threads<=0) ? REINDEX_THREADS : Math.min(threads, 16);
+
         EntityManager em = DoeServletContextListener.createEntityManager();
 
+        // determine the starting point, if any
+        Date sinceDate = null;
+        if (StringUtils.equalsIgnoreCase("last", since)) {
+            IndexWatermark watermark = em.find(IndexWatermark.class, IndexWatermark.REINDEX);
+            if (null!=watermark)
+                sinceDate = watermark.getDateIndexed();
+        } else if (StringUtils.isNotBlank(since)) {
+            try {
+                sinceDate = parseTimestamp(since);
+            } catch ( DateTimeParseException e ) {
+                em.close();
+                return ErrorResponse
+                        .badRequest("Invalid since value: " + since)
+                        .build();
+            }
+        }
+
+        // bounded queue; when full, the reading thread posts the batch itself
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 2), new ThreadPoolExecutor.CallerRunsPolicy());
+
+        AtomicLong indexed = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        AtomicLong batches = new AtomicLong();
+        long startTime = System.currentTimeMillis();
+        // latest Snapshot update sent, and whether everything finished
+        Date latestUpdate = null;
+        boolean complete = false;
+
         try {
-            TypedQuery<MetadataSnapshot> query = em.createNamedQuery("MetadataSnapshot.findAllByStatus", MetadataSnapshot.class)
-                    .setParameter("status", DOECodeMetadata.Status.Approved);
-            List<MetadataSnapshot> results = query.getResultList();
-            int records = 0;
+            TypedQuery<MetadataSnapshot> query = (null==sinceDate) ?
+                    em.createNamedQuery("MetadataSnapshot.findAllByStatus", MetadataSnapshot.class) :
+                    em.createNamedQuery("MetadataSnapshot.findByStatusUpdatedSince", MetadataSnapshot.class)
+                            .setParameter("date", sinceDate);
+            query.setParameter("status", DOECodeMetadata.Status.Approved)
+                    .setMaxResults(REINDEX_PAGE_SIZE);
+
+            int start = 0;
+            List<MetadataSnapshot> results;
+            do {
+                results = query.setFirstResult(start).getResultList();
+                start += results.size();
+
+                List<DOECodeMetadata> page = new ArrayList<>();
+                List<String> dois = new ArrayList<>();
+                for ( MetadataSnapshot amd : results ) {
+                    DOECodeMetadata md = DOECodeMetadata.parseJson(new StringReader(amd.getJson()));
+
+                    if (null!=amd.getDateRecordUpdated() && (null==latestUpdate || amd.getDateRecordUpdated().after(latestUpdate)))
+                        latestUpdate = amd.getDateRecordUpdated();
+
+                    if (isIndexable(md)) {
+                        page.add(md);
+                        dois.addAll(getVersionDois(md));
+                    }
+                }
+                // release the page from the persistence context
+                em.clear();
+
+                // look up related identifier DOI status for the whole page
+                Map<String, Boolean> minted = findMintedDois(em, dois);
+
+                ArrayNode batch = mapper.createArrayNode();
+                for ( DOECodeMetadata md : page ) {
+                    batch.add(createIndexDocument(md, createIndexableRi(md, minted)));
+
+                    if (batch.size() >= batchSize) {
+                        submitIndexBatch(executor, batch, indexed, failed, batches);
+                        batch = mapper.createArrayNode();
+                    }
+                }
+                if (batch.size() > 0)
+                    submitIndexBatch(executor, batch, indexed, failed, batches);
+
+                log.info("Reindex progress: " + start + " records read, " + indexed.get() + " indexed.");
+            } while (results.size() == REINDEX_PAGE_SIZE);
+
+            // wait for remaining batches
+            executor.shutdown();
+            complete = executor.awaitTermination(1, TimeUnit.HOURS);
+            if (!complete)
+                log.warn("Reindex did not complete in time.");
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            log.warn("Reindex interrupted.");
+        } finally {
+            executor.shutdownNow();
+        }
 
-            for ( MetadataSnapshot amd : results ) {
-                DOECodeMetadata md = DOECodeMetadata.parseJson(new StringReader(amd.getJson()));
+        long elapsed = System.currentTimeMillis() - startTime;
 
-                sendToIndex(em, md);
-                ++records;
+        try {
+            // advance the high-water mark only if everything made it; keep it
+            // behind any update that may not have been committed when reading began
+            IndexWatermark watermark = em.find(IndexWatermark.class, IndexWatermark.REINDEX);
+            Date safeUpdate = new Date(startTime - REINDEX_WATERMARK_MARGIN);
+            if (null!=latestUpdate && latestUpdate.after(safeUpdate))
+                latestUpdate = safeUpdate;
+
+            if (complete && 0==failed.get() && null!=latestUpdate &&
+                (null==watermark || null==watermark.getDateIndexed() || latestUpdate.after(watermark.getDateIndexed()))) {
+                em.getTransaction().begin();
+                watermark = em.merge(new IndexWatermark(IndexWatermark.REINDEX, latestUpdate));
+                em.getTransaction().commit();
             }
 
+            ObjectNode stats = mapper
+                    .createObjectNode()
+                    .put("indexed", String.valueOf(indexed.get()))
+                    .put("failed", failed.get())
+                    .put("batches", batches.get())
+                    .put("elapsed_ms", elapsed)
+                    .put("records_per_second", (elapsed > 0) ? indexed.get() * 1000.0 / elapsed : indexed.get());
+            if (null!=sinceDate)
+                stats.put("since", sinceDate.toInstant().toString());
+            if (null!=watermark && null!=watermark.getDateIndexed())
+                stats.put("watermark", watermark.getDateIndexed().toInstant().toString());
+
             return Response
                     .ok()
-                    .entity(mapper.createObjectNode().put("indexed", String.valueOf(records)).toString())
+                    .entity(stats.toString())
                     .build();
         } finally {
+            if (em.getTransaction().isActive())
+                em.getTransaction().rollback();
             em.close();
         }
     }
 
+    /**
+     * Parse an ISO-8601 timestamp value; either an instant (with offset or
+     * "Z"), a local date-time, or a date.  Local values use the system time
+     * zone.
+     *
+     * @param value the timestamp to parse
+     * @return the Date represented
+     * @throws DateTimeParseException if the value cannot be parsed
+     */
+    private static Date parseTimestamp(String value) {
+        String text = value.trim();
+
+        try {
+            return Date.from(OffsetDateTime.parse(text).toInstant());
+        } catch ( DateTimeParseException e ) {
+            // not an offset date-time
+        }
+        try {
+            return Date.from(LocalDateTime.parse(text).atZone(ZoneId.systemDefault()).toInstant());
+        } catch ( DateTimeParseException e ) {
+            // not a local date-time
+        }
+        return Date.from(LocalDate.parse(text).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    /**
+     * Queue a batch of index documents to be posted by a reindex worker.
+     *
+     * @param executor the reindex worker pool
+     * @param batch the JSON array of documents to post
+     * @param indexed count of documents successfully indexed
+     * @param failed count of documents not indexed
+     * @param batches count of batches posted
+     */
+    private static void submitIndexBatch(ThreadPoolExecutor executor, ArrayNode batch,
+            AtomicLong indexed, AtomicLong failed, AtomicLong batches) {
+        executor.execute(() -> {
+            try {
+                if (postToIndex(batch))
+                    indexed.addAndGet(batch.size());
+                else
+                    failed.addAndGet(batch.size());
+            } catch ( IOException e ) {
+                log.warn("Reindex batch error: " + e.getMessage());
+                failed.addAndGet(batch.size());
+            }
+            batches.incrementAndGet();
+        });
+    }
+
+    /**
+     * Discard cached entities and query results, on this and any other nodes.
+     *
+     * @param type (optional) "site" or "user" to discard only that entity
+     * (for "user", including cached authenticated principals); everything if
+     * not given
+     * @return a Response indicating the caches were refreshed
+     * @throws Exception on unexpected errors
+     */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     @Path("/refresh")
     @RequiresAuthentication
     @RequiresRoles("ContentAdmin")
-    public Response refresh() throws Exception {
+    public Response refresh(@QueryParam("type") String type) throws Exception {
         try {
-            DoeServletContextListener.refreshCaches();
+            switch ( StringUtils.defaultString(type).trim().toLowerCase() ) {
+                case "":
+                    DoeServletContextListener.refreshCaches();
+                    break;
+                case "site":
+                    EntityCaches.evict(Site.class);
+                    break;
+                case "user":
+                    EntityCaches.evict(User.class);
+                    break;
+                default:
+                    return ErrorResponse
+                            .badRequest("Unknown cache type: " + type)
+                            .build();
+            }
 
             return Response
                     .ok()
@@ -2445,11 +2896,14 @@ public class Metadata {
             // perform RI backfilling
             backfillProjects(em, md, previousRiList);
 
+            // send it to the indexer
+            queueIndexUpdate(em, md.getCodeId());
+
             // if we make it this far, go ahead and commit the transaction
             em.getTransaction().commit();
 
-            // send it to the indexer
-            sendToIndex(em, md);
+            listingsChanged();
+            IndexDispatcher.wake();
 
             // send APPROVAL NOTIFICATION to OWNER
             sendApprovalNotification(md);
@@ -2557,14 +3011,15 @@ public class Metadata {
             }
 
             // remove from index, if ever approved
-            if (everApproved) {
+            if (everApproved)
                 data.put("removed_from_index", DATACITE_BASE_URL + codeId);
-                removeFromIndex(codeId);
-            }
 
 
             em.getTransaction().begin();
 
+            if (everApproved)
+                queueIndexUpdate(em, codeId);
+
             // if APPROVED, we need to hide the Snapshot record, to prevent re-indexing.
             String approvedJson = null;
             if (everApproved) {
@@ -2605,6 +3060,9 @@ public class Metadata {
             // if we make it this far, go ahead and commit the transaction
             em.getTransaction().commit();
 
+            listingsChanged();
+            IndexDispatcher.wake();
+
             // send HIDE notification
             if (everApproved) {
                 DOECodeMetadata mda = DOECodeMetadata.parseJson(new StringReader(approvedJson));
@@ -2723,10 +3181,8 @@ public class Metadata {
             }
 
             // restore to index, if ever approved
-            if (everApproved) {
+            if (everApproved)
                 data.put("restore_to_index", DATACITE_BASE_URL + codeId);
-                sendToIndex(em, mda);
-            }
 
 
 
@@ -2761,6 +3217,8 @@ public class Metadata {
 
                 em.persist(snapshot);
                 em.remove(snap);
+
+                queueIndexUpdate(em, codeId);
             }
 
             // restore metadata
@@ -2783,6 +3241,9 @@ public class Metadata {
             // if we make it this far, go ahead and commit the transaction
             em.getTransaction().commit();
 
+            listingsChanged();
+            IndexDispatcher.wake();
+
             // send UNHIDE notification
             if (everApproved) {
                 sendStateNotification(mda, "UNHIDDEN", user.getEmail(), data);
@@ -2920,14 +3381,15 @@ public class Metadata {
             }
 
             // remove from index, if ever approved
-            if (everApproved) {
+            if (everApproved)
                 data.put("removed_from_index", DATACITE_BASE_URL + codeId);
-                removeFromIndex(codeId);
-            }
 
 
             em.getTransaction().begin();
 
+            if (everApproved)
+                queueIndexUpdate(em, codeId);
+
             // remove record
             em.remove(md);
             
@@ -2957,6 +3419,9 @@ public class Metadata {
             // if we make it this far, go ahead and commit the transaction
             em.getTransaction().commit();
 
+            listingsChanged();
+            IndexDispatcher.wake();
+
             // send DELETION notification
             if (everApproved) {
                 DOECodeMetadata mda = DOECodeMetadata.parseJson(new StringReader(approvedSnap.getJson()));
@@ -3109,24 +3574,15 @@ public class Metadata {
             md.setRelatedIdentifiers(awardRi);
             md.setAwardDois(null);
 
-            // set some reasonable default timeouts
-            // create an HTTP client to request through
-            try (CloseableHttpClient hc =
-                    HttpClientBuilder
-                    .create()
-                    .setDefaultRequestConfig(RequestConfig
-                            .custom()
-                            .setSocketTimeout(60000)
-                            .setConnectTimeout(60000)
-                            .setConnectionRequestTimeout(60000)
-                            .build())
-                    .build()) {
             HttpPost post = new HttpPost(publishing_host + "/services/softwarecenter?action=api");
             post.setHeader("Content-Type", "application/json");
             post.setHeader("Accept", "application/json");
             post.setEntity(new StringEntity(mapper.writeValueAsString(md), "UTF-8"));
 
-                HttpResponse response = hc.execute(post);
+            // use the shared OSTI publishing connection pool
+            try (CloseableHttpResponse response = DoeServletContextListener
+                    .getHttpClient(HttpClientRegistry.Downstream.OSTI)
+                    .execute(post)) {
                 String text = EntityUtils.toString(response.getEntity());
 
                 if ( HttpStatus.SC_OK!=response.getStatusLine().getStatusCode()) {
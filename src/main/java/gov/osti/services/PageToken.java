@@ -0,0 +1,87 @@
+package gov.osti.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Opaque continuation token for keyset ("seek") paging of listings: the sort
+ * key values of the last row of a page, from which the next page continues.
+ * Clients pass the token back unchanged; its content is not part of the API.
+ */
+public class PageToken {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final ArrayNode values;
+
+    private PageToken(ArrayNode values) {
+        this.values = values;
+    }
+
+    /**
+     * Encode the sort key values of a row as a token.
+     *
+     * @param values the key values, in sort order; Strings, Longs, or null
+     * @return the token
+     */
+    public static String encode(Object... values) {
+        ArrayNode array = mapper.createArrayNode();
+        for ( Object value : values )
+            array.addPOJO(value);
+
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(array.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token.
+     *
+     * @param token the token, as given to the client
+     * @param size the number of key values expected
+     * @return the PageToken, or null if no token was given
+     * @throws IllegalArgumentException if the token is not valid
+     */
+    public static PageToken decode(String token, int size) {
+        if (StringUtils.isBlank(token))
+            return null;
+
+        try {
+            JsonNode node = mapper.readTree(Base64.getUrlDecoder().decode(token.trim()));
+
+            if (!node.isArray() || size!=node.size())
+                throw new IllegalArgumentException("Invalid page token.");
+            return new PageToken((ArrayNode) node);
+        } catch ( IOException e ) {
+            throw new IllegalArgumentException("Invalid page token.");
+        }
+    }
+
+    /**
+     * Get a String key value.
+     *
+     * @param index the position of the value
+     * @return the value, possibly null
+     */
+    public String getString(int index) {
+        JsonNode value = values.get(index);
+        return value.isNull() ? null : value.asText();
+    }
+
+    /**
+     * Get a numeric key value.
+     *
+     * @param index the position of the value
+     * @return the value
+     * @throws IllegalArgumentException if not a number
+     */
+    public long getLong(int index) {
+        JsonNode value = values.get(index);
+        if (!value.canConvertToLong())
+            throw new IllegalArgumentException("Invalid page token.");
+        return value.asLong();
+    }
+}
@@ -4,10 +4,16 @@ package gov.osti.services;
 
 import com.fasterxml.jackson.annotation.JsonFilter;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.databind.node.ArrayNode;
@@ -15,6 +21,9 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.ser.FilterProvider;
 import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
 import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import gov.osti.entity.DOECodeMetadata;
@@ -25,8 +34,12 @@ import gov.osti.entity.BiblioLink;
 import gov.osti.entity.ContributingOrganization;
 import gov.osti.entity.Contributor;
 import gov.osti.entity.ResearchOrganization;
+import gov.osti.search.PrefixIndex;
+import gov.osti.search.ResponseCache;
+import gov.osti.search.SingleFlight;
+import gov.osti.search.SearchBackend;
 import gov.osti.search.SearchData;
-import gov.osti.search.SolrDocument;
+import gov.osti.search.SolrResponseReader;
 import gov.osti.search.SolrResult;
 import gov.osti.listeners.DoeServletContextListener;
 import gov.osti.search.FacetCountsDeserializer;
@@ -34,21 +47,36 @@ import gov.osti.search.FacetDeserializer;
 import gov.osti.search.SearchResponse;
 import gov.osti.search.SolrFacet;
 import gov.osti.search.SolrFacetCounts;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringReader;
+import java.io.StringWriter;
 import java.lang.reflect.Field;
-import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 import javax.servlet.ServletContext;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
@@ -58,23 +86,26 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
-import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.util.EntityUtils;
+import org.apache.shiro.authz.annotation.RequiresAuthentication;
+import org.apache.shiro.authz.annotation.RequiresRoles;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
+import static gov.osti.listeners.DoeServletContextListener.getIntProperty;
 
 /**
  * Implement a search interface with a SOLR backend.
@@ -119,6 +150,8 @@ public class SearchService {
         "changeLog",
         "change_log"
     };
+    // the same, for filtering stored JSON passed straight through
+    private static final Set<String> IGNORED_PROPERTIES = new HashSet<>(Arrays.asList(ignoreProperties));
     protected static FilterProvider filter = new SimpleFilterProvider()
             .addFilter("filter properties by name",
                     SimpleBeanPropertyFilter.serializeAllExcept(ignoreProperties));
@@ -165,8 +198,372 @@ public class SearchService {
     // a JSON mapper
     protected static final ObjectMapper mapper = new ObjectMapper().setTimeZone(TimeZone.getDefault());
 
-    // configured location of the search service endpoint
-    private static final String SEARCH_URL = DoeServletContextListener.getConfigurationProperty("search.url");
+    // export media types
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
+    private static final Map<String, String> EXPORT_TYPES = new HashMap<>();
+    static {
+        EXPORT_TYPES.put("ndjson", NDJSON);
+        EXPORT_TYPES.put("csv", CSV);
+        EXPORT_TYPES.put("yaml", "text/yaml");
+        EXPORT_TYPES.put("xml", MediaType.APPLICATION_XML);
+    }
+    // rows requested from SOLR per export page
+    private static final int EXPORT_ROWS = 500;
+
+    // typeahead suggestions returned by default, and at most
+    private static final int DEFAULT_SUGGESTIONS = 10;
+    private static final int MAX_SUGGESTIONS = 50;
+    // CSV export columns
+    private static final String[] CSV_COLUMNS = {
+        "code_id",
+        "software_title",
+        "acronym",
+        "doi",
+        "release_date",
+        "description",
+        "site_ownership_code",
+        "project_type",
+        "software_type",
+        "licenses",
+        "programming_languages",
+        "developers",
+        "research_organizations",
+        "sponsoring_organizations",
+        "repository_link",
+        "landing_page",
+        "date_record_updated"
+    };
+    private static final CsvMapper CSV_MAPPER = new CsvMapper();
+    private static final CsvSchema CSV_SCHEMA;
+    static {
+        CsvSchema.Builder schema = CsvSchema.builder();
+        for ( String column : CSV_COLUMNS )
+            schema.addColumn(column);
+        CSV_SCHEMA = schema.build().withHeader();
+    }
+
+    /**
+     * Identifies one rendering of a single record: CODE ID, output format, and
+     * whether or not exported.
+     */
+    private static class RecordKey {
+        private final Long codeId;
+        private final String format;
+        private final boolean export;
+
+        RecordKey(Long codeId, String format, boolean export) {
+            this.codeId = codeId;
+            // anything unrecognized is rendered as JSON
+            this.format = Arrays.asList("yaml", "xml", "enw", "ris").contains(format) ? format : "json";
+            this.export = export;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof RecordKey))
+                return false;
+            RecordKey other = (RecordKey) o;
+            return Objects.equals(codeId, other.codeId) && format.equals(other.format) && export==other.export;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(codeId, format, export);
+        }
+    }
+
+    /**
+     * A search that did not succeed, with the HTTP status to report.
+     */
+    private static class SearchFailure extends IOException {
+        private final int status;
+
+        SearchFailure(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+        int getStatus() {
+            return status;
+        }
+    }
+
+    /**
+     * A rendered response body, with its headers and strong entity tag.
+     */
+    private static class RenderedResponse {
+        private final String body;
+        private final String contentType;
+        private final String disposition;
+        private final EntityTag tag;
+
+        RenderedResponse(String body, String contentType, String disposition) {
+            this.body = body;
+            this.contentType = contentType;
+            this.disposition = disposition;
+            this.tag = new EntityTag(DigestUtils.sha256Hex(body));
+        }
+
+        /**
+         * Construct the Response for a request, honoring any If-None-Match
+         * precondition.
+         *
+         * @param request the request being answered, or null to skip
+         * precondition checks
+         * @return a 304 if the client already has this rendering, otherwise
+         * a 200 with the content
+         */
+        Response toResponse(Request request) {
+            Response.ResponseBuilder builder = (null==request) ? null : request.evaluatePreconditions(tag);
+
+            if (null!=builder)
+                return builder.tag(tag).build();
+
+            builder = Response
+                    .ok()
+                    .header("Content-Type", contentType)
+                    .tag(tag)
+                    .entity(body);
+            if (null!=disposition)
+                builder.header("Content-Disposition", disposition);
+
+            return builder.build();
+        }
+    }
+
+    // rendered single records; size and lifetime via "search.record.cache.size" and "search.record.cache.ttl" (seconds)
+    private static final ResponseCache<RecordKey, RenderedResponse> RECORD_CACHE = new ResponseCache<>(
+            getIntProperty("search.record.cache.size", 1000),
+            TimeUnit.SECONDS.toMillis(getIntProperty("search.record.cache.ttl", 3600)));
+
+    // search results by generation, format, and canonical SearchData; via "search.cache.size" and "search.cache.ttl" (seconds)
+    private static final ResponseCache<String, RenderedResponse> SEARCH_CACHE = new ResponseCache<>(
+            getIntProperty("search.cache.size", 500),
+            TimeUnit.SECONDS.toMillis(getIntProperty("search.cache.ttl", 300)));
+
+    // facets by generation and query; via "search.facet.cache.size" and "search.facet.cache.ttl" (seconds)
+    private static final ResponseCache<String, SolrFacet> FACET_CACHE = new ResponseCache<>(
+            getIntProperty("search.facet.cache.size", 200),
+            TimeUnit.SECONDS.toMillis(getIntProperty("search.facet.cache.ttl", 600)));
+
+    // cache misses in progress, so identical concurrent lookups share one search
+    private static final SingleFlight<String, RenderedResponse> RECORD_FLIGHTS = new SingleFlight<>();
+    private static final SingleFlight<String, RenderedResponse> SEARCH_FLIGHTS = new SingleFlight<>();
+
+    // incremented on every index write, so lookups racing a change are not cached
+    private static final AtomicLong indexGeneration = new AtomicLong();
+
+    // default fields to facet, if not configured via "search.facet.fields"
+    private static final String DEFAULT_FACET_FIELDS = "fResearchOrganizations,fSponsoringOrganizations,licenses,fProgrammingLanguages,projectType,softwareType";
+
+    // SOLR JSON Facet API request: release years, and counts of each configured field
+    private static final String FACET_DEFINITION = createFacetDefinition();
+
+    /**
+     * Construct the SOLR JSON Facet API request for searches showing facets:
+     * a "dates" range facet of release years, and a terms facet for each field
+     * configured in "search.facet.fields", limited to "search.facet.limit"
+     * values each.
+     *
+     * @return the JSON facet request
+     */
+    private static String createFacetDefinition() {
+        String fields = DoeServletContextListener.getConfigurationProperty("search.facet.fields");
+        int limit = getIntProperty("search.facet.limit", 100);
+
+        ObjectNode definition = mapper.createObjectNode();
+        definition.putObject("dates")
+                .put("type", "range")
+                .put("field", "releaseDate")
+                .put("start", "1950-01-01T00:00:00Z")
+                .put("end", "NOW")
+                .put("gap", "+1YEARS")
+                .put("mincount", 1);
+
+        for ( String field : StringUtils.split(StringUtils.defaultIfBlank(fields, DEFAULT_FACET_FIELDS), ", ") )
+            definition.putObject(field)
+                    .put("type", "terms")
+                    .put("field", field)
+                    .put("limit", limit)
+                    .put("mincount", 1);
+
+        return definition.toString();
+    }
+
+    /**
+     * The facets for a search: cached, or to be read from the SOLR result
+     * and cached.
+     */
+    private static class FacetRequest {
+        private final String key;
+        private final SolrFacet cached;
+
+        FacetRequest(String key) {
+            this.key = key;
+            this.cached = FACET_CACHE.get(key);
+        }
+
+        /**
+         * Get the facets for this search.
+         *
+         * @param result the SOLR result, with facets if not cached
+         * @return the facets, if any
+         */
+        SolrFacet resolve(SolrResult result) {
+            if (null!=cached)
+                return cached;
+
+            SolrFacet facet = result.getSolrFacet();
+            FACET_CACHE.put(key, facet);
+            return facet;
+        }
+    }
+
+    /**
+     * Note that the search index has been written for these CODE IDs, dropping
+     * any cached responses they affect.  Called by the indexing code after
+     * every index POST or removal.
+     *
+     * @param codeIds the CODE IDs indexed or removed
+     */
+    public static void indexChanged(Collection<Long> codeIds) {
+        indexGeneration.incrementAndGet();
+
+        Set<Long> changed = new HashSet<>(codeIds);
+        RECORD_CACHE.invalidateIf(key -> changed.contains(key.codeId));
+        // any search may be affected; older generations are unreachable anyway
+        SEARCH_CACHE.invalidateAll();
+        FACET_CACHE.invalidateAll();
+    }
+
+    /**
+     * Get the current index generation, incremented on every index write.
+     * Callers caching anything derived from the index may compare it to
+     * detect changes.
+     *
+     * @return the index generation
+     */
+    public static long getIndexGeneration() {
+        return indexGeneration.get();
+    }
+
+    /**
+     * Construct statistics for a cache.
+     *
+     * @param cache the cache
+     * @return a JSON object of its size, hits, misses, and hit ratio
+     */
+    private static ObjectNode cacheStatistics(ResponseCache<?, ?> cache) {
+        long hits = cache.getHits();
+        long lookups = hits + cache.getMisses();
+
+        return mapper
+                .createObjectNode()
+                .put("size", cache.size())
+                .put("hits", hits)
+                .put("misses", cache.getMisses())
+                .put("hit_ratio", (0==lookups) ? 0.0 : (double) hits / lookups);
+    }
+
+    /**
+     * Construct statistics for the coalescing of cache misses.
+     *
+     * @param flights the SingleFlight
+     * @return a JSON object of its searches in progress, searches made, and
+     * lookups that shared another's search
+     */
+    private static ObjectNode flightStatistics(SingleFlight<?, ?> flights) {
+        return mapper
+                .createObjectNode()
+                .put("in_flight", flights.size())
+                .put("loads", flights.getLoads())
+                .put("shared", flights.getShared());
+    }
+
+    /**
+     * Report search response cache statistics.
+     *
+     * Response Codes:
+     * 200 - OK, JSON contains cache statistics
+     * 401 - Authentication required
+     * 403 - Forbidden, not a content administrator
+     *
+     * @return a Response containing the cache statistics
+     */
+    @GET
+    @RequiresAuthentication
+    @RequiresRoles("ContentAdmin")
+    @Produces (MediaType.APPLICATION_JSON)
+    @Path ("/cachestats")
+    public Response getCacheStatistics() {
+        ObjectNode stats = mapper.createObjectNode();
+        stats.put("generation", indexGeneration.get());
+        stats.set("records", cacheStatistics(RECORD_CACHE));
+        stats.set("searches", cacheStatistics(SEARCH_CACHE));
+        stats.set("facets", cacheStatistics(FACET_CACHE));
+        stats.set("record_flights", flightStatistics(RECORD_FLIGHTS));
+        stats.set("search_flights", flightStatistics(SEARCH_FLIGHTS));
+
+        return Response
+                .ok()
+                .entity(stats.toString())
+                .build();
+    }
+
+    /**
+     * Suggest search terms for typeahead, from the titles, developer names,
+     * research organizations, and keywords of searchable records.  Answered
+     * from memory; see SuggestIndex.
+     *
+     * Response Codes:
+     * 200 - OK, JSON contains the suggestions, most frequent first
+     * 400 - unknown field requested
+     *
+     * Example:
+     * {"suggestions":[{"field":"developer","value":"John Smith","count":3}]}
+     *
+     * @param q the text typed so far
+     * @param field (optional) the field to suggest from; default is all
+     * @param rows (optional) the maximum number of suggestions; default 10,
+     * at most 50
+     * @return a Response containing the suggestions
+     */
+    @GET
+    @Produces (MediaType.APPLICATION_JSON)
+    @Path ("/suggest")
+    public Response suggest(@QueryParam("q") String q, @QueryParam("field") String field, @QueryParam("rows") Integer rows) {
+        List<SuggestIndex.Field> fields = Arrays.asList(SuggestIndex.Field.values());
+        if (StringUtils.isNotBlank(field)) {
+            SuggestIndex.Field requested = SuggestIndex.Field.fromName(field);
+
+            if (null==requested)
+                return ErrorResponse
+                        .badRequest("Unknown suggestion field: " + field)
+                        .build();
+            fields = Collections.singletonList(requested);
+        }
+        int max = Math.max(1, Math.min(MAX_SUGGESTIONS, (null==rows) ? DEFAULT_SUGGESTIONS : rows));
+
+        // the best of each field, merged
+        List<Map.Entry<SuggestIndex.Field, PrefixIndex.Suggestion>> found = new ArrayList<>();
+        for ( SuggestIndex.Field f : fields )
+            for ( PrefixIndex.Suggestion suggestion : SuggestIndex.suggest(q, f, max) )
+                found.add(new AbstractMap.SimpleImmutableEntry<>(f, suggestion));
+        found.sort(Map.Entry.comparingByValue(PrefixIndex.BY_COUNT));
+
+        ArrayNode suggestions = mapper.createArrayNode();
+        for ( Map.Entry<SuggestIndex.Field, PrefixIndex.Suggestion> entry : found.subList(0, Math.min(max, found.size())) )
+            suggestions.addObject()
+                    .put("field", entry.getKey().name())
+                    .put("value", entry.getValue().getValue())
+                    .put("count", entry.getValue().getCount());
+
+        return Response
+                .ok()
+                .entity(mapper.createObjectNode().set("suggestions", suggestions).toString())
+                .build();
+    }
 
     /**
      * Acquire tombstone information from the database if possible.  This endpoint
@@ -263,47 +660,79 @@ public class SearchService {
      * 404 - Record was not found
      * 500 - IO error or search malformed
      *
+     * Rendered records are cached, and carry a strong ETag; a request with a
+     * matching If-None-Match header gets a 304 Not Modified.
+     *
      * @param codeId the CODE ID to find
      * @param format the desired FORMAT; may be "yaml" or "xml".  Default is JSON
      * unless specified
+     * @param export whether or not to render the DOI as a URL
+     * @param request the request, for evaluating any If-None-Match precondition
      * @return the record in the desired format, if found
      */
     @GET
     @Path("{codeId}")
     @Produces ({MediaType.APPLICATION_JSON, "text/yaml", MediaType.APPLICATION_XML, MediaType.TEXT_PLAIN})
-    public Response getSingleRecord(@PathParam("codeId") Long codeId, @QueryParam("format") String format, @QueryParam("export") boolean export) {
+    public Response getSingleRecord(@PathParam("codeId") Long codeId, @QueryParam("format") String format, @QueryParam("export") boolean export, @Context Request request) {
         // no search configured, you get nothing
-        if ("".equals(SEARCH_URL))
+        if (!DoeServletContextListener.getSearchBackend().isSearchable())
             return Response
                     .status(Response.Status.NO_CONTENT)
                     .build();
-        CloseableHttpClient hc = HttpClientBuilder
-                .create()
-                .build();
 
-        try {
-            // construct a Search for a single CODEID value
-            URIBuilder builder = new URIBuilder(SEARCH_URL)
-                .addParameter("q", "codeId:" + codeId)
-                .addParameter("fl", "json")
-                .addParameter("rows", "1");
+        RecordKey key = new RecordKey(codeId, format, export);
+        RenderedResponse record = RECORD_CACHE.get(key);
+        if (null!=record)
+            return record.toResponse(request);
+
+        // only cache if the index is not written while rendering
+        long generation = indexGeneration.get();
 
-            HttpGet get = new HttpGet(builder.build());
+        try {
+            // identical concurrent lookups share one search
+            return RECORD_FLIGHTS
+                    .execute(generation + "|" + codeId + "|" + key.format + "|" + export, () -> renderRecord(key, generation))
+                    .toResponse(request);
+        } catch ( SearchFailure e ) {
+            return ErrorResponse
+                    .status(e.getStatus())
+                    .message(e.getMessage())
+                    .build();
+        } catch ( IOException e ) {
+            log.warn("Searching Error.", e);
+            return ErrorResponse.internalServerError("Search error encountered.").build();
+        }
+    }
 
-            HttpResponse response = hc.execute(get);
+    /**
+     * Search for and render a single record.
+     *
+     * @param key the record and rendering wanted
+     * @param generation the index generation when the lookup started; the
+     * rendering is cached only if still current
+     * @return the rendered record
+     * @throws SearchFailure if not found, or the search failed
+     * @throws IOException on communication errors
+     */
+    private RenderedResponse renderRecord(RecordKey key, long generation) throws IOException {
+        // construct a Search for a single CODEID value
+        URIBuilder builder = new URIBuilder()
+            .addParameter("q", "codeId:" + key.codeId)
+            .addParameter("fl", "json")
+            .addParameter("rows", "1");
 
-            if (HttpStatus.SC_OK==response.getStatusLine().getStatusCode()) {
-                SolrResult result = JSON_MAPPER.readValue(EntityUtils.toString(response.getEntity()), SolrResult.class);
+        try (SearchBackend.Result response = DoeServletContextListener
+                .getSearchBackend()
+                .search(builder.getQueryParams())) {
+            if (HttpStatus.SC_OK==response.getStatus()) {
+                // get the first result, converted to a POJO
+                List<DOECodeMetadata> found = new ArrayList<>();
+                SolrResponseReader.read(response.getContent(), JSON_MAPPER, DOECodeMetadata.class, found::add);
 
-                if (result.getSearchResponse().isEmpty())
-                    return ErrorResponse
-                            .notFound("No records found.")
-                            .build();
-                // get the first result
-                SolrDocument doc = result.getSearchResponse().getDocuments()[0];
-                // convert it to a POJO
-                DOECodeMetadata md = DOECodeMetadata.parseJson(new StringReader(doc.getJson()));
-                if (export)
+                if (found.isEmpty())
+                    throw new SearchFailure(HttpStatus.SC_NOT_FOUND, "No records found.");
+                DOECodeMetadata md = found.get(0);
+                if (key.export)
                     md.setDoi("https://doi.org/" + md.getDoi());
 
                 // if no release date, don't return the DOI for display in search results.
@@ -311,77 +740,43 @@ public class SearchService {
                     md.setDoi(null);
 
                 // if YAML is requested, return that; otherwise, default to JSON
-                if ("yaml".equals(format)) {
-                    // return the YAML
-                    return
-                        Response
-                        .status(Response.Status.OK)
-                        .header("Content-Type", "text/yaml")
-                        .header("Content-Disposition", "attachment; filename = \"metadata.yml\"")
-                        .entity(YAML_MAPPER
-                                .writer(filter).writeValueAsString(md))
-                        .build();
-                } else if ("xml".equals(format)) {
+                RenderedResponse record;
+                if ("yaml".equals(key.format)) {
+                    record = new RenderedResponse(YAML_MAPPER.writer(filter).writeValueAsString(md),
+                            "text/yaml", "attachment; filename = \"metadata.yml\"");
+                } else if ("xml".equals(key.format)) {
                     md.setChangeLog(null);
-                    return Response
-                            .ok()
-                            .header("Content-Type", MediaType.APPLICATION_XML)
-                            .entity(XML_MAPPER
-                                    .writer(filter).writeValueAsString(md))
-                            .build();
-                } else if ("enw".equals(format)) {
-                    return Response
-                            .ok()
-                            .header("Content-Type", MediaType.TEXT_PLAIN)
-                            .entity(createEndNoteResponse(md))
-                            .build();
-                } else if ("ris".equals(format)) {
-                    return Response
-                            .ok()
-                            .header("Content-Type", MediaType.TEXT_PLAIN)
-                            .entity(createRISResponse(md))
-                            .build();
+                    record = new RenderedResponse(XML_MAPPER.writer(filter).writeValueAsString(md),
+                            MediaType.APPLICATION_XML, null);
+                } else if ("enw".equals(key.format)) {
+                    record = new RenderedResponse(createEndNoteResponse(md), MediaType.TEXT_PLAIN, null);
+                } else if ("ris".equals(key.format)) {
+                    record = new RenderedResponse(createRISResponse(md), MediaType.TEXT_PLAIN, null);
                 } else {
                     // send back the JSON (named object "metadata")
-                    return Response
-                        .ok()
-                        .header("Content-Type", MediaType.APPLICATION_JSON)
-                        .entity(BIBLIO_WRAPPER
-                                .writer(filter)
-                                .writeValueAsString(md))
-                        .build();
+                    record = new RenderedResponse(BIBLIO_WRAPPER.writer(filter).writeValueAsString(md),
+                            MediaType.APPLICATION_JSON, null);
                 }
+
+                if (generation==indexGeneration.get())
+                    RECORD_CACHE.put(key, record);
+
+                return record;
             } else {
-                return ErrorResponse
-                        .status(response.getStatusLine().getStatusCode())
-                        .message(EntityUtils.toString(response.getEntity()))
-                        .build();
+                throw new SearchFailure(response.getStatus(), IOUtils.toString(response.getContent(), StandardCharsets.UTF_8));
             }
-        } catch ( IOException | URISyntaxException e ) {
-            log.warn("Searching Error.", e);
-            return ErrorResponse.internalServerError("Search error encountered.").build();
         }
     }
 
     /**
-     * Translate a SearchData parameter request to SOLR output search results.
+     * Map GET query parameters into a JSON SearchData Object.  Parameters for
+     * array fields may be given as a single value, or as a JSON array.
      *
-     * @param uriInfo the GET search parameters
-     * @param format the optional output format (YAML/JSON/XML; JSON is default)
-     * @return the output of the SOLR search results, if any
+     * @param params the GET query parameters
+     * @return the JSON search parameters
+     * @throws IOException if an array parameter is not a valid JSON array
      */
-    @GET
-    @Produces ({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "text/yaml"})
-    public Response searchGet(@Context UriInfo uriInfo, @QueryParam("format") String format) {
-        // no search configured, you get nothing
-        if ("".equals(SEARCH_URL))
-            return Response
-                    .status(Response.Status.NO_CONTENT)
-                    .build();
-
-        // get parameters
-        MultivaluedMap<String, String> params = uriInfo.getQueryParameters();
-
+    private static ObjectNode toSearchParameters(MultivaluedMap<String, String> params) throws IOException {
         // map parameters into JSON
         ObjectNode getParams = mapper.createObjectNode();
 
@@ -422,15 +817,7 @@ public class SearchService {
 
                 // input is already in JSON array format, map it
                 if (isArrayValue) {
-                    try {
-                        values = mapper.readValue(value, new TypeReference<ArrayNode>(){});
-                    } catch (IOException ex) {
-                        log.warn("Unable to process JSON ARRAY from GET parameter.");
-                        log.warn("Message: " + ex.getMessage());
-                        return ErrorResponse
-                                .internalServerError("JSON ARRAY parameter formatting error.")
-                                .build();
-                    }
+                    values = mapper.readValue(value, new TypeReference<ArrayNode>(){});
                 }
                 // input is a normal string, add it to array node
                 else
@@ -444,6 +831,40 @@ public class SearchService {
                 getParams.put(key, value);
         }
 
+        return getParams;
+    }
+
+    /**
+     * Translate a SearchData parameter request to SOLR output search results.
+     *
+     * @param uriInfo the GET search parameters
+     * @param format the optional output format (YAML/JSON/XML; JSON is default)
+     * @return the output of the SOLR search results, if any
+     */
+    @GET
+    @Produces ({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "text/yaml"})
+    public Response searchGet(@Context UriInfo uriInfo, @QueryParam("format") String format) {
+        // no search configured, you get nothing
+        if (!DoeServletContextListener.getSearchBackend().isSearchable())
+            return Response
+                    .status(Response.Status.NO_CONTENT)
+                    .build();
+
+        // get parameters
+        MultivaluedMap<String, String> params = uriInfo.getQueryParameters();
+
+        // map parameters into JSON
+        ObjectNode getParams;
+        try {
+            getParams = toSearchParameters(params);
+        } catch (IOException ex) {
+            log.warn("Unable to process JSON ARRAY from GET parameter.");
+            log.warn("Message: " + ex.getMessage());
+            return ErrorResponse
+                    .internalServerError("JSON ARRAY parameter formatting error.")
+                    .build();
+        }
+
         // convert JSON to String, as expected for search()
         String parameters;
         try {
@@ -472,7 +893,7 @@ public class SearchService {
     @Consumes (MediaType.APPLICATION_JSON)
     public Response searchPost(String parameters, @QueryParam("format") String format) {
         // no search configured, you get nothing
-        if ("".equals(SEARCH_URL))
+        if (!DoeServletContextListener.getSearchBackend().isSearchable())
             return Response
                     .status(Response.Status.NO_CONTENT)
                     .build();
@@ -481,103 +902,252 @@ public class SearchService {
         return search(parameters, format);
     }
 
-    private Response search(String parameters, String format) {
-        try {
-            // get a set of search parameters
-            SearchData searchFor = SearchData.parseJson(new StringReader(parameters));
-            boolean showFacets = searchFor.isShowFacets();
+    /**
+     * Export every record matching a search, in CODE ID order within the
+     * requested sort.  Takes the same GET parameters as a search, except that
+     * rows, start, and cursor are ignored: the whole result is walked with a
+     * SOLR cursor and written out as it is read, so memory use does not grow
+     * with the size of the export.
+     *
+     * Response Codes:
+     * 200 - OK, records follow in the requested format
+     * 204 - No content, searching is not configured/unavailable
+     * 400 - Search parameters are invalid
+     *
+     * @param uriInfo the GET search parameters
+     * @param format (optional) "csv", "yaml", or "xml"; newline-delimited JSON
+     * if not specified
+     * @param gzip (optional) if true, compress the output
+     * @return a streaming Response of the matching records
+     */
+    @GET
+    @Path ("/export")
+    @Produces ({NDJSON, CSV, "text/yaml", MediaType.APPLICATION_XML})
+    public Response export(@Context UriInfo uriInfo, @QueryParam("format") String format, @QueryParam("gzip") boolean gzip) {
+        // no search configured, you get nothing
+        if (!DoeServletContextListener.getSearchBackend().isSearchable())
+            return Response
+                    .status(Response.Status.NO_CONTENT)
+                    .build();
 
-            CloseableHttpClient hc = HttpClientBuilder
-                    .create()
+        SearchData searchFor;
+        try {
+            searchFor = SearchData.parseJson(new StringReader(toSearchParameters(uriInfo.getQueryParameters()).toString()));
+        } catch ( IOException e ) {
+            log.warn("Unable to process export parameters: " + e.getMessage());
+            return ErrorResponse
+                    .badRequest("Invalid search parameters.")
                     .build();
+        }
+
+        final String exportFormat = Arrays.asList("csv", "yaml", "xml").contains(format) ? format : "ndjson";
+
+        StreamingOutput stream = (OutputStream output) -> {
+            OutputStream out = gzip ? new GZIPOutputStream(output, 8192) : output;
+            String cursor = "*";
 
-            URIBuilder builder = new URIBuilder(SEARCH_URL)
-                    .addParameter("q", searchFor.toQ())
-                    .addParameter("fl", "json")
-                    .addParameter("sort", searchFor.getSort());
-            // if values are specified for rows and start, supply those.
-            if (null!=searchFor.getRows())
-                builder.addParameter("rows", String.valueOf(searchFor.getRows()));
-            if (null!=searchFor.getStart())
-                builder.addParameter("start", String.valueOf(searchFor.getStart()));
-            // is show facets, add those
-            if (showFacets) {
-                    builder.addParameter("facet", "on");
-                    builder.addParameter("facet.field", "fResearchOrganizations");
+            try (ExportWriter writer = new ExportWriter(exportFormat, out)) {
+                while (true) {
+                    URIBuilder builder = new URIBuilder()
+                            .addParameter("q", searchFor.toQ())
+                            .addParameter("fl", "json")
+                            .addParameter("sort", searchFor.getCursorSort())
+                            .addParameter("rows", String.valueOf(EXPORT_ROWS))
+                            .addParameter("omitHeader", "true")
+                            .addParameter("json.facet", "{}")
+                            .addParameter("cursorMark", cursor);
+
+                    String next;
+                    try (SearchBackend.Result response = DoeServletContextListener
+                            .getSearchBackend()
+                            .search(builder.getQueryParams())) {
+                        if (HttpStatus.SC_OK!=response.getStatus())
+                            throw new IOException("Search failed: " + IOUtils.toString(response.getContent(), StandardCharsets.UTF_8));
+
+                        next = SolrResponseReader.readRaw(response.getContent(), JSON_MAPPER, writer::write).getNextCursorMark();
+                    }
+                    writer.flush();
+
+                    // the cursor stops moving at the end of the results
+                    if (null==next || next.equals(cursor))
+                        break;
+                    cursor = next;
+                }
+            } catch ( IOException e ) {
+                log.warn("Export Error: " + e.getMessage());
+                throw e;
             }
 
-            HttpGet get = new HttpGet(builder.build());
+            if (gzip)
+                ((GZIPOutputStream) out).finish();
+        };
+
+        Response.ResponseBuilder builder = Response
+                .ok(stream)
+                .header("Content-Type", EXPORT_TYPES.get(exportFormat))
+                .header("Content-Disposition", "attachment; filename = \"export." + exportFormat + "\"");
+        if (gzip)
+            builder.header("Content-Encoding", "gzip");
+
+        return builder.build();
+    }
+
+    /**
+     * Writes exported search documents in a given format.  Never closes the
+     * underlying output.
+     */
+    private static class ExportWriter implements Closeable {
+        private final String format;
+        private final OutputStream out;
+        // for NDJSON
+        private JsonGenerator generator;
+        // for CSV and YAML
+        private SequenceWriter sequence;
+        // for XML
+        private ObjectWriter writer;
+
+        ExportWriter(String format, OutputStream out) throws IOException {
+            this.format = format;
+            this.out = out;
 
-            HttpResponse response = hc.execute(get);
+            if ("csv".equals(format)) {
+                sequence = CSV_MAPPER
+                        .writer(CSV_SCHEMA)
+                        .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                        .writeValues(out);
+            } else if ("yaml".equals(format)) {
+                sequence = YAML_MAPPER
+                        .writer(filter)
+                        .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                        .writeValues(out);
+            } else if ("xml".equals(format)) {
+                writer = XML_MAPPER
+                        .writer(filter)
+                        .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<records>\n".getBytes(StandardCharsets.UTF_8));
+            } else {
+                generator = JSON_MAPPER.getFactory().createGenerator(out);
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+            }
+        }
 
-            if (HttpStatus.SC_OK==response.getStatusLine().getStatusCode()) {
-                SolrResult result = JSON_MAPPER.readValue(EntityUtils.toString(response.getEntity()), SolrResult.class);
-                // construct a search response object
-                SearchResponse query = new SearchResponse();
-                query.setStart(result.getSearchResponse().getStart());
-                query.setNumFound(result.getSearchResponse().getNumFound());
+        /**
+         * Write a single document.
+         *
+         * @param json the stored JSON of the document
+         * @throws IOException on output errors
+         */
+        void write(JsonParser json) throws IOException {
+            if (null!=generator) {
+                // NDJSON is the stored JSON as-is, one record per line
+                copySearchDocument(json, generator);
+                generator.writeRaw('\n');
+                return;
+            }
 
-                // if there are matched documents, load them in
-                if ( null!=result.getSearchResponse().getDocuments() ) {
-                    for ( SolrDocument doc : result.getSearchResponse().getDocuments() ) {
-                        // convert it to a POJO
-                        DOECodeMetadata md = JSON_MAPPER.readValue(doc.getJson(), DOECodeMetadata.class);
+            // apply the search document rules, then convert
+            TokenBuffer buffer = new TokenBuffer(JSON_MAPPER, false);
+            copySearchDocument(json, buffer);
 
-                        // if no release date, don't return the DOI for display in search results.
-                        if (!StringUtils.isBlank(md.getDoi()) && md.getReleaseDate() == null)
-                            md.setDoi(null);
+            try (JsonParser document = buffer.asParser()) {
+                if ("csv".equals(format)) {
+                    sequence.write(toCsvRow(JSON_MAPPER.readTree(document)));
+                } else {
+                    DOECodeMetadata md = JSON_MAPPER.readValue(document, DOECodeMetadata.class);
+
+                    if (null!=sequence) {
+                        sequence.write(md);
+                    } else {
                         md.setChangeLog(null);
-                        query.add(md);
-                    }
-                    if (showFacets) {
-                        // check out the FACETS
-                        query.setFacets(result.getSolrFacet().getValues());
-                        // check out the FACET COUNTS
-                        query.setFacetFieldCounts(result.getSolrFacetCounts().getFields()); // fields
+                        writer.writeValue(out, md);
                     }
                 }
+            }
+        }
 
-                FilterProvider searchFilter = filter;
-                if (!showFacets)
-                    searchFilter = filterExcludeFacets;
+        /**
+         * Send any buffered output.
+         *
+         * @throws IOException on output errors
+         */
+        void flush() throws IOException {
+            if (null!=generator)
+                generator.flush();
+            if (null!=sequence)
+                sequence.flush();
+            out.flush();
+        }
 
-                // respond with the appropriate format based on the input parameter
-                if ("xml".equals(format)) {
-                    return Response
-                            .ok()
-                            .header("Content-Type", MediaType.APPLICATION_XML)
-                            .entity(XML_MAPPER
-                                    .writer(searchFilter)
-                                    .writeValueAsString(query))
-                            .build();
-                } else if ("yaml".equals(format)) {
-                    return Response
-                            .ok()
-                            .header("Content-Type", "text/yaml")
-                            .entity(YAML_MAPPER
-                                    .writer(searchFilter)
-                                    .writeValueAsString(query))
-                            .build();
-                } else {
-                    return Response
-                            .ok()
-                            .header("Content-Type", MediaType.APPLICATION_JSON)
-                            .entity(JSON_MAPPER
-                                    .writer(searchFilter)
-                                    .writeValueAsString(query))
-                            .build();
+        @Override
+        public void close() throws IOException {
+            if (null!=generator)
+                generator.close();
+            if (null!=sequence)
+                sequence.close();
+            if (null!=writer)
+                out.write("</records>\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+    }
+
+    /**
+     * Flatten a search document into a CSV row.  Lists are joined with "; ",
+     * using the name of any people or organizations.
+     *
+     * @param document the search document
+     * @return the values of each CSV column
+     */
+    private static Map<String, String> toCsvRow(JsonNode document) {
+        Map<String, String> row = new LinkedHashMap<>();
+
+        for ( String column : CSV_COLUMNS ) {
+            JsonNode value = document.path(column);
+            String text = "";
+
+            if (value.isArray()) {
+                List<String> items = new ArrayList<>();
+                for ( JsonNode item : value ) {
+                    if (item.has("organization_name"))
+                        items.add(item.get("organization_name").asText());
+                    else if (item.has("last_name"))
+                        items.add(item.path("last_name").asText() + ", " + item.path("first_name").asText());
+                    else if (item.isValueNode())
+                        items.add(item.asText());
                 }
-            } else {
-                // let the user know something failed
-                return ErrorResponse
-                        .status(response.getStatusLine().getStatusCode())
-                        .message(EntityUtils.toString(response.getEntity()))
-                        .build();
+                text = String.join("; ", items);
+            } else if (value.isValueNode()) {
+                text = value.asText();
             }
-        } catch ( URISyntaxException e ) {
-            log.warn("URI Error: " + e.getMessage());
+
+            row.put(column, text);
+        }
+
+        return row;
+    }
+
+    private Response search(String parameters, String format) {
+        try {
+            // get a set of search parameters
+            SearchData searchFor = SearchData.parseJson(new StringReader(parameters));
+
+            // answer from the cache of the current index generation, if possible
+            String canonical = searchFor.toCacheKey();
+            String cacheKey = (null==canonical) ? null : indexGeneration.get() + "|"
+                    + (("xml".equals(format) || "yaml".equals(format)) ? format : "json") + "|"
+                    + canonical;
+            RenderedResponse cached = SEARCH_CACHE.get(cacheKey);
+            if (null!=cached)
+                return cached.toResponse(null);
+
+            // identical concurrent searches share one search
+            return SEARCH_FLIGHTS
+                    .execute(cacheKey, () -> renderSearch(searchFor, format, cacheKey))
+                    .toResponse(null);
+        } catch ( SearchFailure e ) {
             return ErrorResponse
-                    .internalServerError("Unable to contact search provider.")
+                    .status(e.getStatus())
+                    .message(e.getMessage())
                     .build();
         } catch ( JsonProcessingException e ) {
             log.warn("Unable to process JSON from: " + parameters);
@@ -593,6 +1163,255 @@ public class SearchService {
         }
     }
 
+    /**
+     * Run and render a search.
+     *
+     * @param searchFor the search parameters
+     * @param format the output format: "xml", "yaml", or JSON otherwise
+     * @param cacheKey the key under which to cache the rendering, or null
+     * not to cache it
+     * @return the rendered search results
+     * @throws SearchFailure if the search failed
+     * @throws IOException on communication or JSON errors
+     */
+    private RenderedResponse renderSearch(SearchData searchFor, String format, String cacheKey) throws IOException {
+        boolean showFacets = searchFor.isShowFacets();
+
+        URIBuilder builder = new URIBuilder()
+                .addParameter("q", searchFor.toQ())
+                .addParameter("fl", "json")
+                .addParameter("sort", searchFor.isCursorSearch() ? searchFor.getCursorSort() : searchFor.getSort());
+        // if values are specified for rows and start, supply those.
+        if (null!=searchFor.getRows())
+            builder.addParameter("rows", String.valueOf(searchFor.getRows()));
+        // a cursor replaces the start row
+        if (searchFor.isCursorSearch())
+            builder.addParameter("cursorMark", searchFor.getCursor().trim());
+        else if (null!=searchFor.getStart())
+            builder.addParameter("start", String.valueOf(searchFor.getStart()));
+        // facets are cached by query alone, so paging does not recompute them
+        FacetRequest facets = showFacets ? new FacetRequest(indexGeneration.get() + "|" + searchFor.toQ()) : null;
+        builder.addParameter("json.facet", (null!=facets && null==facets.cached) ? FACET_DEFINITION : "{}");
+
+        try (SearchBackend.Result response = DoeServletContextListener
+                .getSearchBackend()
+                .search(builder.getQueryParams())) {
+            if (HttpStatus.SC_OK==response.getStatus()) {
+                FilterProvider searchFilter = filter;
+                if (!showFacets)
+                    searchFilter = filterExcludeFacets;
+
+                // respond with the appropriate format based on the input parameter
+                RenderedResponse rendered;
+                if ("xml".equals(format)) {
+                    rendered = new RenderedResponse(XML_MAPPER
+                            .writer(searchFilter)
+                            .writeValueAsString(readSearchResponse(response.getContent(), facets)), MediaType.APPLICATION_XML, null);
+                } else if ("yaml".equals(format)) {
+                    rendered = new RenderedResponse(YAML_MAPPER
+                            .writer(searchFilter)
+                            .writeValueAsString(readSearchResponse(response.getContent(), facets)), "text/yaml", null);
+                } else {
+                    // JSON needs no conversion; pass the stored JSON through
+                    rendered = new RenderedResponse(writeRawSearchResponse(response.getContent(), facets, searchFilter),
+                            MediaType.APPLICATION_JSON, null);
+                }
+
+                SEARCH_CACHE.put(cacheKey, rendered);
+                return rendered;
+            } else {
+                // let the user know something failed
+                throw new SearchFailure(response.getStatus(), IOUtils.toString(response.getContent(), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    /**
+     * Set the counts, and facets if requested, of a SOLR search result on a
+     * search response.
+     *
+     * @param query the search response to fill in
+     * @param result the SOLR result
+     * @param facets the facets requested, or null if none
+     */
+    private static void setSearchResults(SearchResponse query, SolrResult result, FacetRequest facets) {
+        query.setStart(result.getSearchResponse().getStart());
+        query.setNumFound(result.getSearchResponse().getNumFound());
+        query.setNextCursor(result.getNextCursorMark());
+
+        if (null!=facets) {
+            SolrFacet facet = facets.resolve(result);
+
+            if (null!=facet) {
+                // check out the FACETS
+                query.setFacets(facet.getValues());
+                // check out the FACET COUNTS
+                query.setFacetFieldCounts(facet.getFields()); // fields
+            }
+        }
+    }
+
+    /**
+     * Read a SOLR search response into a SearchResponse of metadata Objects.
+     *
+     * @param in the SOLR response content
+     * @param facets the facets requested, or null if none
+     * @return the SearchResponse
+     * @throws IOException on parsing errors
+     */
+    private static SearchResponse readSearchResponse(InputStream in, FacetRequest facets) throws IOException {
+        // construct a search response object
+        SearchResponse query = new SearchResponse();
+
+        // load matched documents in as they are read
+        SolrResult result = SolrResponseReader.read(in, JSON_MAPPER, DOECodeMetadata.class, md -> {
+            // if no release date, don't return the DOI for display in search results.
+            if (!StringUtils.isBlank(md.getDoi()) && md.getReleaseDate() == null)
+                md.setDoi(null);
+            md.setChangeLog(null);
+            query.add(md);
+        });
+        setSearchResults(query, result, facets);
+
+        return query;
+    }
+
+    /**
+     * Write a SOLR search response as JSON, copying the stored JSON of each
+     * document straight through rather than binding it to a metadata Object.
+     * Produces the same output as serializing a SearchResponse.
+     *
+     * @param in the SOLR response content
+     * @param facets the facets requested, or null if none
+     * @param searchFilter the filter for the response envelope
+     * @return the JSON search response
+     * @throws IOException on parsing errors
+     */
+    private static String writeRawSearchResponse(InputStream in, FacetRequest facets, FilterProvider searchFilter) throws IOException {
+        TokenBuffer docs = new TokenBuffer(JSON_MAPPER, false);
+        docs.writeStartArray();
+        SolrResult result = SolrResponseReader.readRaw(in, JSON_MAPPER, json -> copySearchDocument(json, docs));
+        docs.writeEndArray();
+
+        // the response envelope, without documents
+        SearchResponse query = new SearchResponse();
+        setSearchResults(query, result, facets);
+        TokenBuffer envelope = new TokenBuffer(JSON_MAPPER, false);
+        JSON_MAPPER.writer(searchFilter).writeValue(envelope, query);
+
+        // splice the documents into the envelope
+        StringWriter out = new StringWriter();
+        try (JsonGenerator generator = JSON_MAPPER.getFactory().createGenerator(out);
+             JsonParser parser = envelope.asParser()) {
+            parser.nextToken();
+            generator.writeStartObject();
+            while (JsonToken.FIELD_NAME==parser.nextToken()) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                generator.writeFieldName(name);
+
+                if ("docs".equals(name)) {
+                    parser.skipChildren();
+                    docs.serialize(generator);
+                } else {
+                    generator.copyCurrentStructure(parser);
+                }
+            }
+            generator.writeEndObject();
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * Copy the stored JSON of a single search document, omitting filtered
+     * properties, and the DOI if there is no release date.
+     *
+     * @param json the stored JSON, positioned before the first token
+     * @param out where to write the document
+     * @throws IOException on parsing errors
+     */
+    private static void copySearchDocument(JsonParser json, JsonGenerator out) throws IOException {
+        if (JsonToken.START_OBJECT!=json.nextToken())
+            return;
+
+        // the release date may follow the DOI, so buffer the document first
+        TokenBuffer buffer = new TokenBuffer(JSON_MAPPER, false);
+        boolean released = false;
+        String doi = null;
+
+        buffer.writeStartObject();
+        while (JsonToken.FIELD_NAME==json.nextToken()) {
+            String name = json.getCurrentName();
+            JsonToken token = json.nextToken();
+
+            if (IGNORED_PROPERTIES.contains(name)) {
+                json.skipChildren();
+                continue;
+            }
+            if ("doi".equals(name) && JsonToken.VALUE_STRING==token)
+                doi = json.getText();
+            if ("release_date".equals(name) && JsonToken.VALUE_NULL!=token)
+                released = true;
+            buffer.writeFieldName(name);
+            copyFiltered(json, buffer);
+        }
+        buffer.writeEndObject();
+
+        // if no release date, don't return the DOI for display in search results.
+        boolean hideDoi = !StringUtils.isBlank(doi) && !released;
+
+        try (JsonParser parser = buffer.asParser()) {
+            parser.nextToken();
+            out.writeStartObject();
+            while (JsonToken.FIELD_NAME==parser.nextToken()) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+
+                if (hideDoi && "doi".equals(name)) {
+                    parser.skipChildren();
+                    continue;
+                }
+                out.writeFieldName(name);
+                out.copyCurrentStructure(parser);
+            }
+            out.writeEndObject();
+        }
+    }
+
+    /**
+     * Copy the current JSON value, omitting filtered properties of any
+     * nested objects.
+     *
+     * @param in the parser, positioned at the value
+     * @param out where to write the value
+     * @throws IOException on parsing errors
+     */
+    private static void copyFiltered(JsonParser in, JsonGenerator out) throws IOException {
+        if (in.isExpectedStartObjectToken()) {
+            out.writeStartObject();
+            while (JsonToken.FIELD_NAME==in.nextToken()) {
+                String name = in.getCurrentName();
+                in.nextToken();
+
+                if (IGNORED_PROPERTIES.contains(name)) {
+                    in.skipChildren();
+                } else {
+                    out.writeFieldName(name);
+                    copyFiltered(in, out);
+                }
+            }
+            out.writeEndObject();
+        } else if (in.isExpectedStartArrayToken()) {
+            out.writeStartArray();
+            while (JsonToken.END_ARRAY!=in.nextToken())
+                copyFiltered(in, out);
+            out.writeEndArray();
+        } else {
+            out.copyCurrentEvent(in);
+        }
+    }
+
     private String createRISResponse(DOECodeMetadata md) {
         String return_string = "TY  - COMP\n";
 
@@ -0,0 +1,366 @@
+package gov.osti.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import gov.osti.listeners.DoeServletContextListener;
+import gov.osti.search.SearchBackend;
+import gov.osti.search.SolrResponseReader;
+import static gov.osti.services.SearchService.JSON_MAPPER;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.utils.URIBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static gov.osti.listeners.DoeServletContextListener.getIntProperty;
+
+/**
+ * Precomputed Google sitemap index and pages.
+ *
+ * The whole sitemap is generated in a single pass over the search index in
+ * CODE ID order, requesting only the CODE ID and last update date of each
+ * record; each page of results is streamed straight to a gzip-compressed
+ * sitemap page.  The result is kept in memory and served as-is until rebuilt,
+ * either when the search index has changed or when the refresh interval has
+ * passed.  Rebuilds happen in the background, so requests are answered from
+ * the previous sitemap in the meantime.
+ *
+ * Each document keeps the time its content last actually changed, for use as
+ * its Last-Modified date.
+ */
+public class SitemapCache {
+    // logger
+    private static final Logger log = LoggerFactory.getLogger(SitemapCache.class);
+
+    private static final String SITE_URL = DoeServletContextListener.getConfigurationProperty("site.url");
+
+    // records per sitemap page, as limited by the sitemap protocol
+    static final int MAX_RECORDS_PER_SITEMAP_PAGE = 20000;
+    private static final String SITEMAP_NAMESPACE = "http://www.sitemaps.org/schemas/sitemap/0.9";
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd").withZone(ZoneId.systemDefault());
+    private static final XMLOutputFactory XML_OUTPUT = XMLOutputFactory.newInstance();
+
+    // how often to check for index changes, in seconds
+    private static final long POLL_INTERVAL = 300;
+    // how often to rebuild regardless, in milliseconds
+    private static final long REFRESH_INTERVAL = TimeUnit.MINUTES.toMillis(getIntProperty("sitemap.refresh", 1440));
+
+    /**
+     * A single generated sitemap document.
+     */
+    public static class Document {
+        private final byte[] content;
+        private final byte[] digest;
+        private final Date lastModified;
+
+        Document(byte[] content, byte[] digest, Date lastModified) {
+            this.content = content;
+            this.digest = digest;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Get the gzip-compressed XML content.
+         *
+         * @return the compressed document
+         */
+        public byte[] getContent() {
+            return content;
+        }
+
+        /**
+         * Get the time the content of this document last changed.
+         *
+         * @return the last modified time, to the second
+         */
+        public Date getLastModified() {
+            return lastModified;
+        }
+    }
+
+    /**
+     * A complete sitemap: the index and its pages.
+     */
+    public static class Sitemap {
+        private final Document index;
+        private final List<Document> pages;
+        private final long generation;
+        private final long built;
+
+        Sitemap(Document index, List<Document> pages, long generation, long built) {
+            this.index = index;
+            this.pages = Collections.unmodifiableList(pages);
+            this.generation = generation;
+            this.built = built;
+        }
+
+        /**
+         * Get the sitemap index.
+         *
+         * @return the index document
+         */
+        public Document getIndex() {
+            return index;
+        }
+
+        /**
+         * Get a sitemap page.
+         *
+         * @param pageNum the page number, starting at 1
+         * @return the page document, or null if there is no such page
+         */
+        public Document getPage(long pageNum) {
+            return (pageNum < 1 || pageNum > pages.size()) ? null : pages.get((int)pageNum - 1);
+        }
+    }
+
+    // the current sitemap, if built yet
+    private static volatile Sitemap current = null;
+
+    // the rebuilding thread, when running
+    private static ScheduledExecutorService executor = null;
+
+    /**
+     * Start checking for needed rebuilds on a background thread.
+     */
+    public static synchronized void start() {
+        if (null!=executor)
+            return;
+
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sitemap-builder");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(SitemapCache::refresh, POLL_INTERVAL, POLL_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop background rebuilding.
+     */
+    public static synchronized void stop() {
+        if (null==executor)
+            return;
+
+        executor.shutdownNow();
+        executor = null;
+    }
+
+    /**
+     * Get the current sitemap, building it first if there is none yet.
+     *
+     * @return the sitemap
+     * @throws IOException on search errors
+     */
+    public static Sitemap get() throws IOException {
+        Sitemap sitemap = current;
+
+        return (null==sitemap) ? build(false) : sitemap;
+    }
+
+    /**
+     * Rebuild the sitemap if the index has changed or it is due for refresh.
+     */
+    private static void refresh() {
+        try {
+            build(true);
+        } catch ( IOException | RuntimeException e ) {
+            log.warn("Sitemap rebuild failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Build the sitemap.  Only one build happens at a time; callers waiting on
+     * one in progress get its result.
+     *
+     * @param onlyIfStale if true, keep the current sitemap unless the index
+     * has changed since or the refresh interval has passed
+     * @return the sitemap
+     * @throws IOException on search errors
+     */
+    private static synchronized Sitemap build(boolean onlyIfStale) throws IOException {
+        Sitemap previous = current;
+        long generation = SearchService.getIndexGeneration();
+
+        // already built meanwhile, or still current
+        if (null!=previous && (!onlyIfStale ||
+                (generation==previous.generation && System.currentTimeMillis() - previous.built < REFRESH_INTERVAL)))
+            return previous;
+
+        long built = System.currentTimeMillis();
+        List<Document> pages = new ArrayList<>();
+
+        String cursor = "*";
+        while (true) {
+            URIBuilder builder = new URIBuilder().addParameter("q", "*:*").addParameter("rows", Integer.toString(MAX_RECORDS_PER_SITEMAP_PAGE))
+                    .addParameter("omitHeader", "true").addParameter("fl", "codeId,dateRecordUpdated").addParameter("json.facet", "{}")
+                    .addParameter("sort", "codeId asc").addParameter("cursorMark", cursor);
+
+            try (SearchBackend.Result response = DoeServletContextListener.getSearchBackend().search(builder.getQueryParams())) {
+                if (HttpStatus.SC_OK!=response.getStatus())
+                    throw new IOException("Search failed: " + response.getStatus());
+
+                PageWriter page = new PageWriter();
+                String next = SolrResponseReader.readFields(response.getContent(), JSON_MAPPER, page::write).getNextCursorMark();
+
+                if (0==page.count)
+                    break;
+                pages.add(page.finish(previousPage(previous, pages.size()), built));
+                // the cursor stops moving at the end of the results
+                if (null==next || next.equals(cursor))
+                    break;
+                cursor = next;
+            }
+        }
+
+        current = new Sitemap(writeIndex(pages, (null==previous) ? null : previous.index, built), pages, generation, built);
+
+        log.info("Sitemap built: " + pages.size() + " pages in " + (System.currentTimeMillis() - built) + "ms.");
+        return current;
+    }
+
+    /**
+     * Get a page of the previous sitemap, if any.
+     */
+    private static Document previousPage(Sitemap previous, int page) {
+        return (null==previous) ? null : previous.getPage(page + 1);
+    }
+
+    /**
+     * Writes a single document as gzip-compressed XML, tracking a digest of the
+     * uncompressed content to tell whether it has changed.
+     */
+    private static class DocumentWriter {
+        protected final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final GZIPOutputStream gzip;
+        private final MessageDigest digest;
+        protected final XMLStreamWriter xml;
+
+        DocumentWriter(String root) throws IOException {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch ( NoSuchAlgorithmException e ) {
+                throw new IOException("Digest unavailable: " + e.getMessage());
+            }
+            gzip = new GZIPOutputStream(bytes);
+            OutputStream out = new DigestOutputStream(gzip, digest);
+
+            try {
+                xml = XML_OUTPUT.createXMLStreamWriter(out, "UTF-8");
+                xml.writeStartDocument("UTF-8", "1.0");
+                xml.writeStartElement(root);
+                xml.writeDefaultNamespace(SITEMAP_NAMESPACE);
+            } catch ( XMLStreamException e ) {
+                throw new IOException("Unable to write sitemap: " + e.getMessage());
+            }
+        }
+
+        /**
+         * Write a simple text element.
+         */
+        protected void writeElement(String name, String value) throws XMLStreamException {
+            xml.writeStartElement(name);
+            xml.writeCharacters(value);
+            xml.writeEndElement();
+        }
+
+        /**
+         * Complete the document.  If its content is the same as the previous
+         * version, the previous last modified time is kept.
+         *
+         * @param previous the previous version of the document, if any
+         * @param now the time to use if the content changed
+         * @return the Document
+         */
+        Document finish(Document previous, long now) throws IOException {
+            try {
+                xml.writeEndElement();
+                xml.writeEndDocument();
+                xml.flush();
+                xml.close();
+            } catch ( XMLStreamException e ) {
+                throw new IOException("Unable to write sitemap: " + e.getMessage());
+            }
+            gzip.close();
+
+            byte[] hash = digest.digest();
+            Date lastModified = (null!=previous && Arrays.equals(hash, previous.digest)) ?
+                    previous.lastModified :
+                    // HTTP dates only go to the second
+                    new Date(now - now % 1000);
+
+            return new Document(bytes.toByteArray(), hash, lastModified);
+        }
+    }
+
+    /**
+     * Writes a sitemap page "urlset".
+     */
+    private static class PageWriter extends DocumentWriter {
+        private int count = 0;
+
+        PageWriter() throws IOException {
+            super("urlset");
+        }
+
+        /**
+         * Write a URL entry for a search document.
+         *
+         * @param doc the CODE ID and date last updated of a record
+         */
+        void write(JsonNode doc) throws IOException {
+            try {
+                xml.writeStartElement("url");
+                writeElement("loc", SITE_URL + "/biblio/" + doc.path("codeId").asLong());
+                // only known for records indexed with it
+                String updated = doc.path("dateRecordUpdated").asText();
+                if (StringUtils.isNotBlank(updated))
+                    writeElement("lastmod", updated);
+                writeElement("changefreq", "daily");
+                writeElement("priority", "0.5");
+                xml.writeEndElement();
+            } catch ( XMLStreamException e ) {
+                throw new IOException("Unable to write sitemap: " + e.getMessage());
+            }
+            ++count;
+        }
+    }
+
+    /**
+     * Write the sitemap index, listing each page with the date it last changed.
+     */
+    private static Document writeIndex(List<Document> pages, Document previous, long now) throws IOException {
+        DocumentWriter index = new DocumentWriter("sitemapindex");
+
+        try {
+            for ( int i = 0; i < pages.size(); ++i ) {
+                index.xml.writeStartElement("sitemap");
+                index.writeElement("loc", SITE_URL + "api/services/sitemap/xml/" + (i + 1));
+                index.writeElement("lastmod", DATE_FORMATTER.format(Instant.ofEpochMilli(pages.get(i).lastModified.getTime())));
+                index.xml.writeEndElement();
+            }
+        } catch ( XMLStreamException e ) {
+            throw new IOException("Unable to write sitemap: " + e.getMessage());
+        }
+        return index.finish(previous, now);
+    }
+}
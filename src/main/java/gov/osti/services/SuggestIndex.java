@@ -0,0 +1,282 @@
+package gov.osti.services;
+
+import gov.osti.entity.Agent;
+import gov.osti.entity.DOECodeMetadata;
+import gov.osti.entity.MetadataSnapshot;
+import gov.osti.entity.Organization;
+import gov.osti.listeners.DoeServletContextListener;
+import gov.osti.search.PrefixIndex;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.EntityManager;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory typeahead suggestions for search fields.
+ *
+ * Terms are gathered from the Approved Snapshots of searchable records, and
+ * kept per field in a PrefixIndex, so suggestions never touch the search
+ * service or the database.  All changes are made on a single background
+ * thread: the terms are loaded in full at startup (and daily thereafter),
+ * and reloaded for individual CODE IDs whenever the index is brought up to
+ * date with them, as on approval, hiding, or deletion.  Lookups use whatever
+ * was last published, and are never blocked by changes.
+ */
+public class SuggestIndex {
+    // logger
+    private static final Logger log = LoggerFactory.getLogger(SuggestIndex.class);
+
+    // Snapshots read per query when loading
+    private static final int LOAD_BATCH_SIZE = 500;
+    // how often to reload everything, in hours
+    private static final long RELOAD_INTERVAL = 24;
+
+    /**
+     * The fields offering suggestions.
+     */
+    public enum Field {
+        title,
+        developer,
+        organization,
+        keyword;
+
+        /**
+         * Look up a Field by name, ignoring case.
+         *
+         * @param name the field name
+         * @return the Field, or null if unknown
+         */
+        public static Field fromName(String name) {
+            try {
+                return valueOf(StringUtils.trimToEmpty(name).toLowerCase(Locale.ROOT));
+            } catch ( IllegalArgumentException e ) {
+                return null;
+            }
+        }
+    }
+
+    // the terms each CODE ID contributed, and the record count of each term
+    private static Map<Long, Map<Field, Set<String>>> contributions = new HashMap<>();
+    private static Map<Field, Map<String, Integer>> counts = new EnumMap<>(Field.class);
+
+    // the published lookup tables
+    private static volatile Map<Field, PrefixIndex> indexes = Collections.emptyMap();
+
+    // the maintenance thread, when running
+    private static ScheduledExecutorService executor = null;
+
+    /**
+     * Start maintaining suggestions on a background thread, beginning with a
+     * full load.
+     */
+    public static synchronized void start() {
+        if (null!=executor)
+            return;
+
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "suggest-index");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(SuggestIndex::load, 0, RELOAD_INTERVAL, TimeUnit.HOURS);
+    }
+
+    /**
+     * Stop maintaining suggestions.  The last published suggestions remain.
+     */
+    public static synchronized void stop() {
+        if (null==executor)
+            return;
+
+        executor.shutdownNow();
+        executor = null;
+    }
+
+    /**
+     * Request that the suggestions from some CODE IDs be brought in line with
+     * their current Approved Snapshots.  Does nothing if not started.
+     *
+     * @param codeIds the CODE IDs changed
+     */
+    public static synchronized void refresh(Collection<Long> codeIds) {
+        if (null==executor || codeIds.isEmpty())
+            return;
+
+        List<Long> ids = new ArrayList<>(codeIds);
+        executor.execute(() -> update(ids));
+    }
+
+    /**
+     * Suggest terms starting with the given text.
+     *
+     * @param prefix the text typed so far
+     * @param field the Field to suggest from
+     * @param max the maximum number of suggestions
+     * @return up to max suggestions, most frequent first
+     */
+    public static List<PrefixIndex.Suggestion> suggest(String prefix, Field field, int max) {
+        return indexes.getOrDefault(field, PrefixIndex.EMPTY).suggest(prefix, max);
+    }
+
+    /**
+     * Load the terms of every searchable Approved record.
+     */
+    private static void load() {
+        EntityManager em = DoeServletContextListener.createEntityManager();
+        // keep the current terms if this fails
+        Map<Long, Map<Field, Set<String>>> previousContributions = contributions;
+        Map<Field, Map<String, Integer>> previousCounts = counts;
+
+        try {
+            contributions = new HashMap<>();
+            counts = new EnumMap<>(Field.class);
+
+            for ( int first = 0; ; first += LOAD_BATCH_SIZE ) {
+                List<MetadataSnapshot> snapshots = em.createNamedQuery("MetadataSnapshot.findAllByStatus", MetadataSnapshot.class)
+                        .setParameter("status", DOECodeMetadata.Status.Approved)
+                        .setFirstResult(first)
+                        .setMaxResults(LOAD_BATCH_SIZE)
+                        .getResultList();
+
+                for ( MetadataSnapshot snapshot : snapshots )
+                    add(snapshot);
+                // don't hold on to what has been read
+                em.clear();
+
+                if (snapshots.size() < LOAD_BATCH_SIZE)
+                    break;
+            }
+            publish();
+
+            log.info("Suggestions loaded for " + contributions.size() + " records.");
+        } catch ( Exception e ) {
+            // never let the scheduled task die
+            log.warn("Unable to load suggestions: " + e.getMessage());
+            contributions = previousContributions;
+            counts = previousCounts;
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Reload the terms of some CODE IDs.
+     *
+     * @param codeIds the CODE IDs to reload
+     */
+    private static void update(List<Long> codeIds) {
+        EntityManager em = DoeServletContextListener.createEntityManager();
+
+        try {
+            List<MetadataSnapshot> snapshots = em.createNamedQuery("MetadataSnapshot.findByCodeIdsAndStatus", MetadataSnapshot.class)
+                    .setParameter("ids", codeIds)
+                    .setParameter("status", DOECodeMetadata.Status.Approved)
+                    .getResultList();
+
+            for ( Long codeId : codeIds )
+                remove(codeId);
+            for ( MetadataSnapshot snapshot : snapshots )
+                add(snapshot);
+            publish();
+        } catch ( Exception e ) {
+            log.warn("Unable to update suggestions: " + e.getMessage());
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Count the terms of a Snapshot, if it is searchable.
+     *
+     * @param snapshot the Approved Snapshot
+     */
+    private static void add(MetadataSnapshot snapshot) {
+        DOECodeMetadata md;
+        try {
+            md = DOECodeMetadata.parseJson(new StringReader(snapshot.getJson()));
+        } catch ( IOException e ) {
+            log.warn("Unable to parse Snapshot JSON for " + snapshot.getSnapshotKey().getCodeId() + ": " + e.getMessage());
+            return;
+        }
+        if (!Metadata.isIndexable(md))
+            return;
+
+        Map<Field, Set<String>> terms = new EnumMap<>(Field.class);
+        addTerm(terms, Field.title, md.getSoftwareTitle());
+        if (null!=md.getDevelopers())
+            for ( Agent developer : md.getDevelopers() )
+                addTerm(terms, Field.developer,
+                        StringUtils.join(new String[] { StringUtils.trimToNull(developer.getFirstName()), StringUtils.trimToNull(developer.getLastName()) }, ' '));
+        if (null!=md.getResearchOrganizations())
+            for ( Organization organization : md.getResearchOrganizations() )
+                addTerm(terms, Field.organization, organization.getOrganizationName());
+        if (null!=md.getKeywords())
+            for ( String keyword : md.getKeywords().split(";") )
+                addTerm(terms, Field.keyword, keyword);
+        if (null!=md.getProjectKeywords())
+            for ( String keyword : md.getProjectKeywords() )
+                addTerm(terms, Field.keyword, keyword);
+
+        contributions.put(snapshot.getSnapshotKey().getCodeId(), terms);
+        for ( Map.Entry<Field, Set<String>> entry : terms.entrySet() ) {
+            Map<String, Integer> fieldCounts = counts.computeIfAbsent(entry.getKey(), f -> new HashMap<>());
+
+            for ( String term : entry.getValue() )
+                fieldCounts.merge(term, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Add a term, if not blank.
+     */
+    private static void addTerm(Map<Field, Set<String>> terms, Field field, String value) {
+        if (StringUtils.isNotBlank(value))
+            terms.computeIfAbsent(field, f -> new HashSet<>()).add(StringUtils.normalizeSpace(value));
+    }
+
+    /**
+     * Uncount the terms of a CODE ID.
+     *
+     * @param codeId the CODE ID
+     */
+    private static void remove(Long codeId) {
+        Map<Field, Set<String>> terms = contributions.remove(codeId);
+
+        if (null==terms)
+            return;
+
+        for ( Map.Entry<Field, Set<String>> entry : terms.entrySet() ) {
+            Map<String, Integer> fieldCounts = counts.get(entry.getKey());
+
+            for ( String term : entry.getValue() )
+                fieldCounts.computeIfPresent(term, (t, count) -> (count > 1) ? count - 1 : null);
+        }
+    }
+
+    /**
+     * Rebuild and publish the lookup tables from the current counts.
+     */
+    private static void publish() {
+        Map<Field, PrefixIndex> built = new EnumMap<>(Field.class);
+
+        for ( Map.Entry<Field, Map<String, Integer>> entry : counts.entrySet() )
+            built.put(entry.getKey(), PrefixIndex.build(entry.getValue()));
+
+        indexes = built;
+    }
+}
@@ -12,9 +12,11 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.NewCookie;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.mail.EmailException;
@@ -38,6 +40,7 @@ import gov.osti.entity.UserRole;
 import gov.osti.entity.UserRole.RoleType;
 import gov.osti.listeners.DoeServletContextListener;
 import gov.osti.security.DOECodeCrypt;
+import gov.osti.security.PrincipalCache;
 import io.jsonwebtoken.Claims;
 import java.io.Serializable;
 import java.lang.reflect.InvocationTargetException;
@@ -46,6 +49,7 @@ import java.util.Set;
 import java.util.TimeZone;
 import java.util.regex.Pattern;
 
+import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 import javax.ws.rs.NotFoundException;
 import javax.ws.rs.PathParam;
@@ -68,6 +72,11 @@ public class UserServices {
     // EMAIL CC for account reactivations
     private static final String REACTIVATION_EMAIL_CC_LIST = DoeServletContextListener.getConfigurationProperty("account.reactivation.email");
     
+    // User listing sort key: names ignoring case, missing names as empty, then user ID
+    private static final String USERS_LAST_NAME_KEY = "lower(coalesce(u.lastname, ''))";
+    private static final String USERS_FIRST_NAME_KEY = "lower(coalesce(u.firstname, ''))";
+    private static final String USERS_SORT_KEY = USERS_LAST_NAME_KEY + ", " + USERS_FIRST_NAME_KEY + ", u.userid";
+    
     public UserServices() {
 
     }
@@ -683,18 +692,25 @@ public class UserServices {
             // generate a new API key and store it
             String apiKey = DOECodeCrypt.nextUniqueString();
             
-            user.setApiKey(apiKey);
-            
-            // store it in the database
+            // store it in the database; the principal is shared, so change a fresh copy
             em.getTransaction().begin();
             
-            em.merge(user);
+            User stored = em.find(User.class, user.getUserId());
+            if (null==stored)
+                throw new NotFoundException("User not on file.");
+            String oldApiKey = stored.getApiKey();
+            
+            stored.setApiKey(apiKey);
             
             em.getTransaction().commit();
             
+            // the old key may no longer authenticate
+            PrincipalCache.invalidate(oldApiKey);
+            PrincipalCache.invalidate(apiKey);
+            
             // send back the Response with information
             return Response
-                    .ok(mapper.createObjectNode().put("apiKey", user.getApiKey()).toString())
+                    .ok(mapper.createObjectNode().put("apiKey", apiKey).toString())
                     .build();
         } catch ( Exception e ) {
             if (em.getTransaction().isActive())
@@ -752,16 +768,20 @@ public class UserServices {
                         .entity(mapper.createObjectNode().put("status", "success").toString())
                         .build();
             
-            // post a pending role request
+            // post a pending role request; the principal is shared, so change a fresh copy
             em.getTransaction().begin();
+            User stored = em.find(User.class, user.getUserId());
+            if (null==stored)
+                throw new NotFoundException("User not on file.");
             pendingRoles = new HashSet<>();
-            pendingRoles.add(user.getSiteId());
+            pendingRoles.add(stored.getSiteId());
             
-            user.setPendingRoles(pendingRoles);
-            em.merge(user);
+            stored.setPendingRoles(pendingRoles);
             
             em.getTransaction().commit();
             
+            PrincipalCache.invalidate(stored.getApiKey());
+            
             // return CREATED
             return Response
                     .status(Response.Status.CREATED)
@@ -787,12 +807,21 @@ public class UserServices {
      * 
      * Response Codes:
      * 200 - OK, JSON array returned
+     * 400 - the page token is not valid
      * 401 - Unauthorized, user is not logged in
      * 403 - Forbidden, user does not have permission to access this function
      * 500 - a JSON processing error occurred
      * 
+     * Users are ordered by last name, first name (ignoring case, missing names
+     * first), then user ID.  When a full
+     * page of ROWS is returned, a Link header with rel="next" gives the URL of
+     * the following page, continuing after the last User by its sort key.
+     * 
+     * @param uriInfo the request URI information
      * @param rows (optional) the number of ROWS desired
-     * @param start (optional) the starting index number, from 0
+     * @param start (optional) the starting index number, from 0; ignored when
+     * AFTER is given
+     * @param after (optional) continuation token from a previous page's Link
      * @return a JSON array of Users
      */
     @GET
@@ -802,29 +831,52 @@ public class UserServices {
     @RequiresRoles("UserAdmin")
     @Path("/users")
     public Response getUsers(
+            @Context UriInfo uriInfo,
             @QueryParam("start") int start,
-            @QueryParam("rows") int rows) {
+            @QueryParam("rows") int rows,
+            @QueryParam("after") String after) {
+        Object[] key;
+        try {
+            // last name, first name, user ID of the previous page's last User
+            PageToken token = PageToken.decode(after, 3);
+            key = (null==token) ? null : seekKey(token);
+        } catch ( IllegalArgumentException e ) {
+            return ErrorResponse
+                    .badRequest(e.getMessage())
+                    .build();
+        }
         EntityManager em = DoeServletContextListener.createEntityManager();
         
         try {
-            TypedQuery<User> q = em.createNamedQuery("User.findAllUsers", User.class);
-            
             // cap at 100 if over that
             rows = (rows>100) ? 100 : rows;
             
-            // set pagination limits, if requested
-            if (0!=rows)
-                q.setMaxResults(rows);
-            if (0!=start)
-                q.setFirstResult(start);
+            Query q = em.createNativeQuery(createUsersSql(null!=key, rows, (null==key) ? start : 0), "User.listing");
+            if (null!=key)
+                for ( int i=0 ; i<key.length ; ++i )
+                    q.setParameter(i+1, key[i]);
             
-            // get the List of Users
-            List<User> users = q.getResultList();
+            // get the List of Users, each with its sort key names
+            @SuppressWarnings("unchecked")
+            List<Object[]> results = q.getResultList();
+            List<User> users = new ArrayList<>();
+            for ( Object[] result : results )
+                users.add((User) result[0]);
             
-            return Response
+            Response.ResponseBuilder response = Response
                     .ok()
-                    .entity(mapper.writeValueAsString(users))
-                    .build();
+                    .entity(mapper.writeValueAsString(users));
+            
+            // full page, there may be more
+            if (0<rows && results.size()==rows) {
+                Object[] last = results.get(results.size()-1);
+                response.link(uriInfo.getRequestUriBuilder()
+                        .replaceQueryParam("start")
+                        .replaceQueryParam("after", PageToken.encode(last[1], last[2], ((User) last[0]).getUserId()))
+                        .build(), "next");
+            }
+            
+            return response.build();
         } catch ( IOException e ) {
             log.warn("JSON Error sending Users", e);
             return ErrorResponse
@@ -835,6 +887,49 @@ public class UserServices {
         }
     }
     
+    /**
+     * Build the SQL listing Users in name order, as User.listing results.
+     * 
+     * Missing names sort as empty, so the key is never null: this lets a page
+     * continue with a single row comparison, and matches users_name_idx (see
+     * sql/postgresql-indexes.sql).  The lower case names are selected with
+     * each row so page tokens carry the database's own values.
+     * 
+     * @param after true to continue after a sort key, given as parameters 1
+     * to 3 (see seekKey)
+     * @param rows the maximum number of rows, or 0 for all
+     * @param start the number of rows to skip
+     * @return the SQL
+     */
+    static String createUsersSql(boolean after, int rows, int start) {
+        StringBuilder sql = new StringBuilder("SELECT u.*, " + USERS_LAST_NAME_KEY + " AS last_key, " +
+                USERS_FIRST_NAME_KEY + " AS first_key FROM users u");
+        if (after)
+            sql.append(" WHERE (" + USERS_SORT_KEY + ") > (?1, ?2, ?3)");
+        sql.append(" ORDER BY ").append(USERS_SORT_KEY);
+        if (0<start)
+            sql.append(" OFFSET ").append(start).append(" ROWS");
+        if (0<rows)
+            sql.append(" FETCH FIRST ").append(rows).append(" ROWS ONLY");
+        
+        return sql.toString();
+    }
+    
+    /**
+     * Get the sort key parameters to continue after from a page token.
+     * 
+     * @param token the lower case last name, first name and user ID
+     * @return the key values; missing names as empty
+     * @throws IllegalArgumentException if the user ID is not a number
+     */
+    static Object[] seekKey(PageToken token) {
+        return new Object[] {
+            StringUtils.defaultString(token.getString(0)),
+            StringUtils.defaultString(token.getString(1)),
+            token.getLong(2)
+        };
+    }
+    
     /**
      * Retrieve a single User account information by email address.
      * 
@@ -930,24 +1025,29 @@ public class UserServices {
         try {
             em.getTransaction().begin();
             
-            // update the names
-            user.setFirstName(request.getFirstName());
-            user.setLastName(request.getLastName());
+            // the principal is shared, so change a fresh copy
+            User stored = em.find(User.class, user.getUserId());
+            if (null==stored)
+                throw new NotFoundException("User not on file.");
             
-            em.merge(user);
+            // update the names
+            stored.setFirstName(request.getFirstName());
+            stored.setLastName(request.getLastName());
             
             em.getTransaction().commit();
+            
+            PrincipalCache.invalidate(stored.getApiKey());
 
             // return the changed information
             return Response
                     .ok()
                     .entity(mapper
                             .createObjectNode()
-                            .put("email", user.getEmail())
-                            .put("first_name", user.getFirstName())
-                            .put("last_name", user.getLastName())
-                            .put("display_name", user.getDisplayName())
-                            .put("display_name_lastname_first", user.getDisplayNameLastnameFirst()).toString())
+                            .put("email", stored.getEmail())
+                            .put("first_name", stored.getFirstName())
+                            .put("last_name", stored.getLastName())
+                            .put("display_name", stored.getDisplayName())
+                            .put("display_name_lastname_first", stored.getDisplayNameLastnameFirst()).toString())
                     .build();
         } catch ( Exception e ) {
             if ( em.getTransaction().isActive())
@@ -1065,6 +1165,9 @@ public class UserServices {
             em.merge(source);
             em.getTransaction().commit();
 
+            // roles or status may have changed; force a fresh lookup
+            PrincipalCache.invalidate(source.getApiKey());
+
             // update complete, send email if required
             if (sendNotification)
                 sendUnlockedAccountEmail(source.getEmail());
@@ -1148,6 +1251,8 @@ public class UserServices {
             u.setDatePasswordChanged();
             
             em.getTransaction().commit();
+            
+            PrincipalCache.invalidate(u.getApiKey());
 
             return Response
                     .ok()
@@ -1552,6 +1657,8 @@ public class UserServices {
             em.merge(currentUser);
             em.getTransaction().commit();
 
+            PrincipalCache.invalidate(currentUser.getApiKey());
+
             return Response
                 .ok()
                 .entity(mapper
@@ -1573,6 +1680,32 @@ public class UserServices {
 
     }
     
+    /**
+     * Report authentication principal cache statistics.
+     * 
+     * Response Codes:
+     * 200 - OK, JSON contains cache size, hits, and misses
+     * 401 - Unauthorized, user is not logged in
+     * 403 - Forbidden, user does not have permission to access this function
+     * 
+     * @return a Response containing the cache statistics
+     */
+    @GET
+    @RequiresAuthentication
+    @RequiresRoles("UserAdmin")
+    @Produces (MediaType.APPLICATION_JSON)
+    @Path ("/authcache")
+    public Response getAuthCacheStatistics() {
+        return Response
+                .ok()
+                .entity(mapper
+                        .createObjectNode()
+                        .put("size", PrincipalCache.size())
+                        .put("hits", PrincipalCache.getHits())
+                        .put("misses", PrincipalCache.getMisses()).toString())
+                .build();
+    }
+    
     /**
      * Query to determine available USER ROLES.
      * 
@@ -1878,6 +2011,8 @@ public class UserServices {
             // store it
             em.getTransaction().commit();
             
+            // account may have been locked
+            PrincipalCache.invalidate(user.getApiKey());
         } catch ( Exception e ) {
             if (em.getTransaction().isActive())
                 em.getTransaction().rollback();
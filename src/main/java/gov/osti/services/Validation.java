@@ -11,6 +11,7 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.i18n.phonenumbers.NumberParseException;
 import com.google.i18n.phonenumbers.PhoneNumberUtil;
 import com.google.i18n.phonenumbers.Phonenumber.PhoneNumber;
+import gov.osti.connectors.HttpClientRegistry;
 import gov.osti.listeners.DoeServletContextListener;
 import gov.osti.repository.GitRepository;
 import gov.osti.repository.SubversionRepository;
@@ -34,11 +35,8 @@ import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -365,37 +363,23 @@ public class Validation {
      * @return true if valid, false if not
      */
     public static boolean isValidAwardNumber(String value) {
-        RequestConfig rc = RequestConfig
-                .custom()
-                .setSocketTimeout(60000)
-                .setConnectTimeout(60000)
-                .setConnectionRequestTimeout(60000)
-                .build();
-        CloseableHttpClient hc = HttpClientBuilder
-                .create()
-                .setDefaultRequestConfig(rc)
-                .build();
+        // if not configured, abort
+        if (StringUtils.isBlank(API_HOST))
+            return false;
 
         try {
-            // if not configured, abort
-            if (StringUtils.isBlank(API_HOST))
-                return false;
-
             // call the VALIDATION API to get a response
             HttpGet get = new HttpGet(API_HOST + "/contract/validate/" + URLEncoder.encode(value.trim(), "UTF-8"));
-            HttpResponse response = hc.execute(get);
-            // get the RESPONSE
-            ApiResponse apiResponse = mapper.readValue(response.getEntity().getContent(), ApiResponse.class);
+            try (CloseableHttpResponse response = DoeServletContextListener
+                    .getHttpClient(HttpClientRegistry.Downstream.VALIDATION)
+                    .execute(get)) {
+                // get the RESPONSE
+                ApiResponse apiResponse = mapper.readValue(response.getEntity().getContent(), ApiResponse.class);
 
-            return apiResponse.isValid();
+                return apiResponse.isValid();
+            }
         } catch ( IOException e ) {
             log.warn("Error checking " + value + ": " + e.getMessage());
-        } finally {
-            try {
-                hc.close();
-            } catch ( IOException e ) {
-                log.warn("IOException Checking contract number " + value + ": " + e.getMessage());
-            }
         }
         return false;
     }
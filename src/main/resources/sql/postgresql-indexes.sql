@@ -0,0 +1,8 @@
+-- Expression indexes not expressible by JPA annotations, so not created by
+-- eclipselink.ddl-generation.  Apply once to a PostgreSQL database after the
+-- tables have been created.
+
+-- administrative User listing, ordered by name ignoring case with missing
+-- names as empty (UserServices.createUsersSql); replaces any earlier definition
+DROP INDEX IF EXISTS users_name_idx;
+CREATE INDEX users_name_idx ON users (lower(coalesce(lastname, '')), lower(coalesce(firstname, '')), userid);
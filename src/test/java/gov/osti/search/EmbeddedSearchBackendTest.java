@@ -0,0 +1,85 @@
+/*
+ */
+package gov.osti.search;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.http.NameValuePair;
+import org.apache.http.message.BasicNameValuePair;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of EmbeddedSearchBackend.
+ */
+public class EmbeddedSearchBackendTest {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    public EmbeddedSearchBackendTest() {
+    }
+
+    private static ObjectNode document(long codeId, String title, String status, String language) {
+        ObjectNode doc = mapper.createObjectNode();
+        doc.put("codeId", codeId);
+        doc.put("softwareTitle", title);
+        doc.put("workflowStatus", status);
+        doc.putArray("programmingLanguages").add(language);
+        doc.putArray("developers").addObject().put("firstName", "José").put("lastName", "Jones");
+        doc.put("json", "{\"code_id\":" + codeId + "}");
+        return doc;
+    }
+
+    private static JsonNode search(SearchBackend backend, String... parameters) throws Exception {
+        List<NameValuePair> params = new ArrayList<>();
+        for ( int i = 0; i < parameters.length; i += 2 )
+            params.add(new BasicNameValuePair(parameters[i], parameters[i+1]));
+
+        try (SearchBackend.Result result = backend.search(params)) {
+            assertEquals("Wrong status", 200, result.getStatus());
+            return mapper.readTree(result.getContent());
+        }
+    }
+
+    /**
+     * Test of index, search and remove methods, of class EmbeddedSearchBackend.
+     */
+    @Test
+    public void testSearch() throws Exception {
+        EmbeddedSearchBackend backend = new EmbeddedSearchBackend();
+
+        ArrayNode documents = mapper.createArrayNode();
+        documents.add(document(1L, "Fast Fourier Transforms", "Approved", "C"));
+        documents.add(document(2L, "Fourier Analysis Toolkit", "Approved", "Python"));
+        documents.add(document(3L, "Unreleased Fourier Work", "Saved", "C"));
+        assertTrue("Index failed", backend.index(documents));
+        assertEquals("Wrong size", 3, backend.size());
+
+        // only Approved documents are found; text is case and accent insensitive
+        JsonNode found = search(backend, "q", "fourier AND jose", "fl", "codeId", "sort", "codeId asc");
+        assertEquals("Wrong count", 2, found.path("response").path("numFound").asInt());
+        assertEquals(1L, found.path("response").path("docs").path(0).path("codeId").asLong());
+
+        // filters and terms facets
+        found = search(backend, "q", "*:*", "fq", "fProgrammingLanguages:\"Python\"",
+                "json.facet", "{languages:{type:\"terms\",field:\"fProgrammingLanguages\"}}");
+        assertEquals("Wrong filtered count", 1, found.path("response").path("numFound").asInt());
+        assertEquals("Python", found.path("facets").path("languages").path("buckets").path(0).path("val").asText());
+
+        // cursors advance a page at a time, and stay put at the end
+        found = search(backend, "q", "*:*", "rows", "1", "sort", "codeId asc", "cursorMark", "*");
+        String cursor = found.path("nextCursorMark").asText();
+        found = search(backend, "q", "*:*", "rows", "1", "sort", "codeId asc", "cursorMark", cursor);
+        assertEquals(2L, found.path("response").path("docs").path(0).path("codeId").asLong());
+        assertEquals("Cursor should stop", found.path("nextCursorMark").asText(),
+                search(backend, "q", "*:*", "rows", "1", "sort", "codeId asc", "cursorMark", found.path("nextCursorMark").asText())
+                        .path("nextCursorMark").asText());
+
+        assertTrue("Remove failed", backend.remove(Arrays.asList(1L, 3L)));
+        assertEquals("Wrong size after removal", 1, backend.size());
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ */
+package gov.osti.search;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of PrefixIndex.
+ */
+public class PrefixIndexTest {
+    
+    public PrefixIndexTest() {
+    }
+    
+    /**
+     * Test of suggest method, of class PrefixIndex.
+     */
+    @Test
+    public void testSuggest() {
+        Map<String, Integer> terms = new HashMap<>();
+        terms.put("John Smith", 2);
+        terms.put("john  smith", 1);
+        terms.put("Jane Smithson", 5);
+        terms.put("José Jones", 1);
+        terms.put("Smith", 1);
+        PrefixIndex index = PrefixIndex.build(terms);
+        
+        assertEquals("Wrong term count", 4, index.size());
+        
+        // any word start matches, most frequent first, variants combined
+        List<PrefixIndex.Suggestion> found = index.suggest(" SMI", 10);
+        assertEquals("Wrong number of matches", 3, found.size());
+        assertEquals("Jane Smithson", found.get(0).getValue());
+        assertEquals("John Smith", found.get(1).getValue());
+        assertEquals(3, found.get(1).getCount());
+        assertEquals("Smith", found.get(2).getValue());
+        
+        // limited, and accents ignored
+        assertEquals(1, index.suggest("smith", 1).size());
+        assertEquals("José Jones", index.suggest("jose", 10).get(0).getValue());
+        assertTrue("Middle of word should not match", index.suggest("mith", 10).isEmpty());
+        assertTrue("Blank should not match", index.suggest("  ", 10).isEmpty());
+    }
+}
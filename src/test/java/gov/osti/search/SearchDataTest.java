@@ -0,0 +1,54 @@
+/*
+ */
+package gov.osti.search;
+
+import java.io.IOException;
+import java.io.StringReader;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of SearchData.
+ */
+public class SearchDataTest {
+    
+    public SearchDataTest() {
+    }
+    
+    /**
+     * Test of toCacheKey method, of class SearchData.
+     */
+    @Test
+    public void testToCacheKey() throws IOException {
+        SearchData a = SearchData.parseJson(new StringReader(
+                "{\"all_fields\":\" solar \",\"licenses\":[\"MIT\",\"Apache\",\"MIT\"],\"rows\":10,\"doi\":\"\"}"));
+        SearchData b = SearchData.parseJson(new StringReader(
+                "{\"rows\":10,\"licenses\":[\"Apache\",\" MIT\"],\"all_fields\":\"solar\"}"));
+        
+        assertEquals("Equivalent searches should match", a.toCacheKey(), b.toCacheKey());
+        
+        // paging and facets are significant
+        b.setStart(10);
+        assertNotEquals("Different pages should not match", a.toCacheKey(), b.toCacheKey());
+        b.setStart(null);
+        b.setShowFacets(true);
+        assertNotEquals("Facets should not match", a.toCacheKey(), b.toCacheKey());
+    }
+    
+    /**
+     * Test of getCursorSort method, of class SearchData.
+     */
+    @Test
+    public void testGetCursorSort() {
+        SearchData data = new SearchData();
+        
+        assertEquals("Default should be by score", "score desc,codeId asc", data.getCursorSort());
+        
+        data.setSort("softwareTitle asc");
+        assertEquals("CODE ID tiebreak missing", "softwareTitle asc,codeId asc", data.getCursorSort());
+        
+        data.setSort("releaseDate desc, codeId desc");
+        assertEquals("CODE ID sort should be kept", "releaseDate desc, codeId desc", data.getCursorSort());
+    }
+    
+}
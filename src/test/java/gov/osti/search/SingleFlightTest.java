@@ -0,0 +1,73 @@
+/*
+ */
+package gov.osti.search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of SingleFlight.
+ */
+public class SingleFlightTest {
+
+    public SingleFlightTest() {
+    }
+
+    /**
+     * Test of execute method, of class SingleFlight.
+     */
+    @Test
+    public void testExecute() throws Exception {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+
+        try {
+            // hold the first load open until the others have joined it
+            List<Future<String>> results = new ArrayList<>();
+            for ( int i = 0; i < 3; ++i )
+                results.add(executor.submit(() -> flights.execute("key", () -> {
+                    calls.incrementAndGet();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch ( InterruptedException e ) {
+                        throw new IOException(e);
+                    }
+                    return "value";
+                })));
+
+            for ( int wait = 0; flights.getShared() < 2 && wait < 1000; ++wait )
+                Thread.sleep(10);
+            release.countDown();
+
+            for ( Future<String> result : results )
+                assertEquals("value", result.get(10, TimeUnit.SECONDS));
+            assertEquals("Wrong number of loads", 1, calls.get());
+            assertEquals("Wrong shared count", 2, flights.getShared());
+            assertEquals("Flight not cleared", 0, flights.size());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // failures are not retained
+        try {
+            flights.execute("key", () -> {
+                throw new IOException("failed");
+            });
+            fail("Expected failure");
+        } catch ( IOException e ) {
+            assertEquals("failed", e.getMessage());
+        }
+        assertEquals("second", flights.execute("key", () -> "second"));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ */
+package gov.osti.search;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of SolrResponseReader, against recorded SOLR responses.
+ */
+public class SolrResponseReaderTest {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    public SolrResponseReaderTest() {
+    }
+
+    /**
+     * Test of read method, of class SolrResponseReader.
+     */
+    @Test
+    public void testRead() throws IOException {
+        List<JsonNode> documents = new ArrayList<>();
+        SolrResult result;
+        try (InputStream in = fixture("solr-documents.json")) {
+            result = SolrResponseReader.read(in, mapper, JsonNode.class, documents::add);
+        }
+
+        assertEquals("Wrong count", 3, result.getSearchResponse().getNumFound());
+        assertEquals("Wrong start", 0, result.getSearchResponse().getStart());
+        assertEquals("Wrong cursor", "AoE/Ez0yMw==", result.getNextCursorMark());
+
+        // the document without stored JSON is skipped
+        assertEquals("Wrong number of documents", 2, documents.size());
+        assertEquals("Escaped JSON not decoded", "Caf\u00e9 \"Quoted\" C:\\path\nsecond line",
+                documents.get(0).path("software_title").asText());
+        assertEquals("Wrong first document", 1, documents.get(0).path("code_id").asInt());
+        assertEquals("Wrong second document", "Plain", documents.get(1).path("software_title").asText());
+    }
+
+    /**
+     * Test of readRaw method, of class SolrResponseReader.
+     */
+    @Test
+    public void testReadRaw() throws IOException {
+        List<String> documents = new ArrayList<>();
+        try (InputStream in = fixture("solr-documents.json")) {
+            SolrResponseReader.readRaw(in, mapper, json -> documents.add(mapper.readTree(json).toString()));
+        }
+
+        assertEquals("Wrong number of documents", 2, documents.size());
+        assertEquals("Wrong raw document",
+                "{\"software_title\":\"Caf\u00e9 \\\"Quoted\\\" C:\\\\path\\nsecond line\",\"code_id\":1}",
+                documents.get(0));
+    }
+
+    /**
+     * Test of read method with no document handler, of class
+     * SolrResponseReader.
+     */
+    @Test
+    public void testReadCountsOnly() throws IOException {
+        try (InputStream in = fixture("solr-documents.json")) {
+            SolrResult result = SolrResponseReader.read(in, mapper, JsonNode.class, null);
+
+            assertEquals("Wrong count", 3, result.getSearchResponse().getNumFound());
+            assertEquals("Wrong cursor", "AoE/Ez0yMw==", result.getNextCursorMark());
+        }
+    }
+
+    /**
+     * Test of readFields method, of class SolrResponseReader.
+     */
+    @Test
+    public void testReadFields() throws IOException {
+        List<JsonNode> documents = new ArrayList<>();
+        SolrResult result;
+        try (InputStream in = fixture("solr-fields.json")) {
+            result = SolrResponseReader.readFields(in, mapper, documents::add);
+        }
+
+        assertEquals("Wrong count", 2, result.getSearchResponse().getNumFound());
+        assertEquals("Wrong cursor", "AoE/Ez0y", result.getNextCursorMark());
+        assertEquals("Wrong number of documents", 2, documents.size());
+        assertEquals("Wrong fields", 2, documents.get(0).size());
+        assertEquals("Wrong code ID", 2, documents.get(1).path("codeId").asInt());
+        assertEquals("Wrong date", "2021-06-07T08:09:10Z", documents.get(1).path("date_record_updated").asText());
+    }
+
+    /**
+     * Test of read method on a SOLR error response, of class
+     * SolrResponseReader.
+     */
+    @Test
+    public void testReadError() throws IOException {
+        try (InputStream in = fixture("solr-error.json")) {
+            SolrResponseReader.read(in, mapper, JsonNode.class, document -> fail("Document read from error"));
+            fail("Error response accepted");
+        } catch ( IOException e ) {
+            assertTrue("Wrong message: " + e.getMessage(), e.getMessage().contains("undefined field nosuchfield"));
+        }
+    }
+
+    private static InputStream fixture(String name) {
+        InputStream in = SolrResponseReaderTest.class.getResourceAsStream(name);
+        assertNotNull("Missing fixture " + name, in);
+        return in;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ */
+package gov.osti.services;
+
+import gov.osti.entity.IndexOutbox;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of IndexDispatcher.
+ */
+public class IndexDispatcherTest {
+
+    public IndexDispatcherTest() {
+    }
+
+    /**
+     * Test of getBackoff method, of class IndexDispatcher.
+     */
+    @Test
+    public void testGetBackoff() {
+        assertEquals("Wrong first backoff", TimeUnit.SECONDS.toMillis(5), IndexDispatcher.getBackoff(1));
+        assertEquals("Wrong second backoff", TimeUnit.SECONDS.toMillis(10), IndexDispatcher.getBackoff(2));
+        assertEquals("Wrong fifth backoff", TimeUnit.SECONDS.toMillis(80), IndexDispatcher.getBackoff(5));
+        assertEquals("Wrong tenth backoff", TimeUnit.SECONDS.toMillis(2560), IndexDispatcher.getBackoff(10));
+
+        // capped at an hour, however many attempts
+        assertEquals("Backoff not capped", TimeUnit.HOURS.toMillis(1), IndexDispatcher.getBackoff(11));
+        assertEquals("Backoff overflowed", TimeUnit.HOURS.toMillis(1), IndexDispatcher.getBackoff(100));
+        assertEquals("Backoff overflowed", TimeUnit.HOURS.toMillis(1), IndexDispatcher.getBackoff(Integer.MAX_VALUE));
+
+        // never shorter than the minimum
+        assertEquals("Wrong backoff without attempts", TimeUnit.SECONDS.toMillis(5), IndexDispatcher.getBackoff(0));
+    }
+
+    /**
+     * Test of recordOutcome method, of class IndexDispatcher.
+     */
+    @Test
+    public void testRecordOutcome() {
+        long now = 1000000L;
+        IndexOutbox indexed = new IndexOutbox(1L);
+        IndexOutbox failed = new IndexOutbox(2L);
+        IndexOutbox retried = new IndexOutbox(3L);
+        IndexOutbox duplicate = new IndexOutbox(3L);
+        retried.setAttempts(3);
+        retried.setLastError("Earlier error");
+        duplicate.setAttempts(1);
+
+        Map<Long, String> failures = new HashMap<>();
+        failures.put(2L, "Indexing service rejected the batch.");
+        failures.put(3L, "Index Removal Error: timed out");
+
+        List<IndexOutbox> done = IndexDispatcher.recordOutcome(Arrays.asList(indexed, failed, retried, duplicate), failures, now);
+
+        assertEquals("Wrong entries done", Arrays.asList(indexed), done);
+        assertEquals("Succeeded entry changed", 0, indexed.getAttempts());
+
+        assertEquals("Wrong attempts", 1, failed.getAttempts());
+        assertEquals("Wrong error", "Indexing service rejected the batch.", failed.getLastError());
+        assertEquals("Wrong next attempt", new Date(now + TimeUnit.SECONDS.toMillis(5)), failed.getNextAttempt());
+
+        // every entry for a failed CODE ID is kept, each backing off on its own count
+        assertEquals("Wrong attempts", 4, retried.getAttempts());
+        assertEquals("Error not replaced", "Index Removal Error: timed out", retried.getLastError());
+        assertEquals("Wrong next attempt", new Date(now + TimeUnit.SECONDS.toMillis(40)), retried.getNextAttempt());
+        assertEquals("Wrong attempts", 2, duplicate.getAttempts());
+        assertEquals("Wrong next attempt", new Date(now + TimeUnit.SECONDS.toMillis(10)), duplicate.getNextAttempt());
+    }
+}
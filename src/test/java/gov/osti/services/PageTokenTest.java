@@ -0,0 +1,99 @@
+/*
+ */
+package gov.osti.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of PageToken.
+ */
+public class PageTokenTest {
+
+    public PageTokenTest() {
+    }
+
+    /**
+     * Test of encode and decode methods, of class PageToken.
+     */
+    @Test
+    public void testRoundTrip() {
+        String encoded = PageToken.encode("o'brien \"jr\"", null, 42L);
+        assertFalse("Token not URL safe", encoded.matches(".*[+/=].*"));
+
+        PageToken token = PageToken.decode(encoded, 3);
+        assertEquals("Wrong string value", "o'brien \"jr\"", token.getString(0));
+        assertNull("Null value not kept", token.getString(1));
+        assertEquals("Wrong numeric value", 42L, token.getLong(2));
+    }
+
+    /**
+     * Test of decode method with no token, of class PageToken.
+     */
+    @Test
+    public void testDecodeBlank() {
+        assertNull("Null token decoded", PageToken.decode(null, 3));
+        assertNull("Empty token decoded", PageToken.decode("", 3));
+        assertNull("Blank token decoded", PageToken.decode("  ", 3));
+    }
+
+    /**
+     * Test of decode method with malformed tokens, of class PageToken.
+     */
+    @Test
+    public void testDecodeMalformed() {
+        String[] tokens = {
+            "not a token!",
+            "%%%%",
+            encode("[\"smith\", \"jane\""),
+            encode("{\"last\":\"smith\"}"),
+            encode("\"smith\"")
+        };
+
+        for ( String token : tokens )
+            assertInvalid("Malformed token " + token + " accepted", token, 3);
+    }
+
+    /**
+     * Test of decode method with the wrong number of values, of class
+     * PageToken.
+     */
+    @Test
+    public void testDecodeWrongSize() {
+        assertInvalid("Short token accepted", PageToken.encode("smith", 12L), 3);
+        assertInvalid("Long token accepted", PageToken.encode("smith", "jane", 12L, 13L), 3);
+        assertInvalid("Empty array accepted", PageToken.encode(), 3);
+    }
+
+    /**
+     * Test of getLong method with non-numeric values, of class PageToken.
+     */
+    @Test
+    public void testGetLongNonNumeric() {
+        PageToken token = PageToken.decode(PageToken.encode("twelve", "12", null, true), 4);
+
+        for ( int i = 0; i < 4; ++i ) {
+            try {
+                token.getLong(i);
+                fail("Non-numeric value " + i + " accepted");
+            } catch ( IllegalArgumentException e ) {
+                assertEquals("Wrong message", "Invalid page token.", e.getMessage());
+            }
+        }
+    }
+
+    private static String encode(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void assertInvalid(String message, String token, int size) {
+        try {
+            PageToken.decode(token, size);
+            fail(message);
+        } catch ( IllegalArgumentException e ) {
+            // expected
+        }
+    }
+}
@@ -4,6 +4,8 @@ package gov.osti.services;
 
 import org.junit.After;
 import org.junit.AfterClass;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import org.junit.Before;
@@ -56,4 +58,41 @@ public class UserServicesTest {
                     UserServices.validatePassword("email@company.com", password));
         }
     }
+    
+    @Test
+    public void testUsersSeek() {
+        String key = "lower(coalesce(u.lastname, '')), lower(coalesce(u.firstname, '')), u.userid";
+        
+        assertEquals("Wrong first page SQL",
+                "SELECT u.*, lower(coalesce(u.lastname, '')) AS last_key, lower(coalesce(u.firstname, '')) AS first_key" +
+                " FROM users u ORDER BY " + key + " FETCH FIRST 20 ROWS ONLY",
+                UserServices.createUsersSql(false, 20, 0));
+        assertEquals("Wrong offset page SQL",
+                "SELECT u.*, lower(coalesce(u.lastname, '')) AS last_key, lower(coalesce(u.firstname, '')) AS first_key" +
+                " FROM users u ORDER BY " + key + " OFFSET 40 ROWS FETCH FIRST 20 ROWS ONLY",
+                UserServices.createUsersSql(false, 20, 40));
+        assertEquals("Wrong continuation SQL",
+                "SELECT u.*, lower(coalesce(u.lastname, '')) AS last_key, lower(coalesce(u.firstname, '')) AS first_key" +
+                " FROM users u WHERE (" + key + ") > (?1, ?2, ?3) ORDER BY " + key,
+                UserServices.createUsersSql(true, 0, 0));
+        
+        // the same row comparison whether or not the names are present
+        assertArrayEquals("Wrong key for names",
+                new Object[] { "smith", "jane", 12L },
+                UserServices.seekKey(PageToken.decode(PageToken.encode("smith", "jane", 12L), 3)));
+        assertArrayEquals("Wrong key for missing last name",
+                new Object[] { "", "jane", 12L },
+                UserServices.seekKey(PageToken.decode(PageToken.encode(null, "jane", 12L), 3)));
+        assertArrayEquals("Wrong key for missing first name",
+                new Object[] { "smith", "", 12L },
+                UserServices.seekKey(PageToken.decode(PageToken.encode("smith", null, 12L), 3)));
+        assertArrayEquals("Wrong key for missing names",
+                new Object[] { "", "", 12L },
+                UserServices.seekKey(PageToken.decode(PageToken.encode(null, null, 12L), 3)));
+    }
+    
+    @Test (expected = IllegalArgumentException.class)
+    public void testUsersSeekBadUserId() {
+        UserServices.seekKey(PageToken.decode(PageToken.encode("smith", "jane", "twelve"), 3));
+    }
 }